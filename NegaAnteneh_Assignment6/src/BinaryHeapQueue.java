@@ -0,0 +1,88 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap stored in a long array. Each entry packs the priority in the
+ * high half and the item in the low half, so entries compare as plain longs and
+ * nothing is boxed.
+ */
+public class BinaryHeapQueue implements IntPriorityQueue {
+
+	private long[] heap = new long[16];
+	private int size;
+
+	@Override
+	public void add(int priority, int item)
+	{
+		if(size == heap.length)
+		{
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		long entry = ((long) priority << 32) | (item & 0xFFFFFFFFL);
+		int k = size++;
+		while(k > 0)
+		{
+			int parent = (k - 1) >>> 1;
+			if(heap[parent] <= entry)
+			{
+				break;
+			}
+			heap[k] = heap[parent];
+			k = parent;
+		}
+		heap[k] = entry;
+	}
+
+	@Override
+	public int peekPriority()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		return (int) (heap[0] >>> 32);
+	}
+
+	@Override
+	public int poll()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		long top = heap[0];
+		long last = heap[--size];
+		int k = 0;
+		int half = size >>> 1;
+		while(k < half)
+		{
+			int child = 2 * k + 1;
+			if(child + 1 < size && heap[child + 1] < heap[child])
+			{
+				child++;
+			}
+			if(last <= heap[child])
+			{
+				break;
+			}
+			heap[k] = heap[child];
+			k = child;
+		}
+		heap[k] = last;
+		return (int) top;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * this method removes every item, keeping the array for reuse
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+}
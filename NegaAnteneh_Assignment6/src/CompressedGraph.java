@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only snapshot of a Graph in compressed sparse row form, made by
+ * Graph.freeze.
+ *
+ * Towns are numbered 0 to n-1, mapped from the graph's own town IDs through an
+ * int array, so a query only does the graph's one name lookup per town. The roads leaving town v are the arcs
+ * offsets[v] to offsets[v+1]-1 of three parallel arrays holding the town at the
+ * far end, the road's length and the road's name. Each road appears once from
+ * each end. Road names are kept once each in a side table, and arcs only store
+ * their position in it, so the hot Dijkstra's loop walks plain int arrays and
+ * never touches a Road object.
+ * The search runs on the kind of IntPriorityQueue the graph was set to use when
+ * it was frozen.
+ *
+ * The snapshot never changes, so any number of threads may query it at once, as
+ * long as no thread is adding or removing the graph's towns at the same time.
+ * Changes made to the graph afterwards are not seen, and the graph has to be
+ * frozen again.
+ */
+public class CompressedGraph {
+
+	private static final int NONE = -1;
+
+	private final Graph graph;
+	private final Town[] towns;
+	private final int[] local;
+
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final int[] names;
+	private final String[] roadNames;
+
+	private final QueueKind queueKind;
+	private final int maxWeight;
+
+	private final ThreadLocal<SearchSpace> spaces;
+
+	/**
+	 * Constructor, copies the towns and roads the graph holds right now
+	 * @param graph the graph to snapshot
+	 */
+	CompressedGraph(Graph graph)
+	{
+		this.graph = graph;
+
+		int n;
+		n = graph.vertexSet().size();
+
+		towns = new Town[n];
+		local = new int[graph.idBound()];
+		Arrays.fill(local, NONE);
+
+		int[] graphIds;
+		graphIds = new int[n];
+
+		int v;
+		v = 0;
+
+		int arcs;
+		arcs = 0;
+		for(int id = 0; id < graph.idBound(); id++)
+		{
+			Town town = graph.townAt(id);
+			if(town != null)
+			{
+				towns[v] = town;
+				local[id] = v;
+				graphIds[v] = id;
+				arcs += graph.touchingRoads(id).size();
+				v++;
+			}
+		}
+
+		offsets = new int[n + 1];
+		targets = new int[arcs];
+		weights = new int[arcs];
+		names = new int[arcs];
+
+		Map<String, Integer> nameIds;
+		nameIds = new HashMap<>();
+
+		ArrayList<String> nameTable;
+		nameTable = new ArrayList<>();
+
+		int longest;
+		longest = 0;
+
+		int k;
+		k = 0;
+		for(v = 0; v < n; v++)
+		{
+			offsets[v] = k;
+			for(Road r : graph.touchingRoads(graphIds[v]))
+			{
+				Integer name = nameIds.get(r.getName());
+				if(name == null)
+				{
+					name = nameTable.size();
+					nameIds.put(r.getName(), name);
+					nameTable.add(r.getName());
+				}
+				targets[k] = local[r.getOppositeId(graphIds[v])];
+				weights[k] = r.getWeight();
+				names[k] = name;
+				longest = Math.max(longest, weights[k]);
+				k++;
+			}
+		}
+		offsets[n] = k;
+		roadNames = nameTable.toArray(new String[0]);
+		maxWeight = longest;
+		queueKind = graph.getQueueKind();
+
+		spaces = ThreadLocal.withInitial(() -> new SearchSpace(towns.length));
+	}
+
+	/**
+	 * this method returns the number of towns in the snapshot
+	 * @return the number of towns
+	 */
+	public int vertexCount()
+	{
+		return towns.length;
+	}
+
+	/**
+	 * this method returns the number of arcs in the snapshot, which is twice the
+	 * number of roads less one for every road leading back to its own town
+	 * @return the number of arcs
+	 */
+	public int arcCount()
+	{
+		return targets.length;
+	}
+
+	/**
+	 * this method finds the shortest path from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An arraylist of Strings that describe the path from sourceVertex
+	 * to destinationVertex, in the same format as Graph.shortestPath
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex)
+	{
+		return Graph.describe(route(sourceVertex, destinationVertex));
+	}
+
+	/**
+	 * this method finds the shortest route from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if there is no route
+	 */
+	public ArrayList<Road> route(Town sourceVertex, Town destinationVertex)
+	{
+		ArrayList<Road> path;
+		path = new ArrayList<>();
+
+		int s = localOf(sourceVertex);
+		int t = localOf(destinationVertex);
+		if(s == NONE || t == NONE || s == t)
+		{
+			return path;
+		}
+
+		SearchSpace space;
+		space = spaces.get();
+		try
+		{
+			space.search(s, t);
+			if(space.dist[t] == Integer.MAX_VALUE)
+			{
+				return path;
+			}
+
+			int current;
+			current = t;
+			while(current != s)
+			{
+				int arc = space.arc[current];
+				int from = source(arc);
+				path.add(new Road(towns[from], towns[current], weights[arc], roadNames[names[arc]], TownIndex.MISSING, TownIndex.MISSING));
+				current = from;
+			}
+			Collections.reverse(path);
+			return path;
+		}
+		finally
+		{
+			space.reset();
+		}
+	}
+
+	/**
+	 * this method Returns the shortest distance from the sourceVertex to every town
+	 * it can reach
+	 * @param sourceVertex the vertex to find shortest distances from
+	 * @return a map from every reachable town to its distance, empty if the
+	 * sourceVertex is not in the snapshot
+	 */
+	public Map<Town, Integer> shortestDistances(Town sourceVertex)
+	{
+		Map<Town, Integer> reached;
+		reached = new HashMap<>();
+
+		int s = localOf(sourceVertex);
+		if(s == NONE)
+		{
+			return reached;
+		}
+
+		SearchSpace space;
+		space = spaces.get();
+		try
+		{
+			space.search(s, NONE);
+			for(int k = 0; k < space.touchedCount; k++)
+			{
+				int v = space.touched[k];
+				reached.put(towns[v], space.dist[v]);
+			}
+			return reached;
+		}
+		finally
+		{
+			space.reset();
+		}
+	}
+
+	/**
+	 * this method returns the number a town has in the snapshot
+	 * @param town the town
+	 * @return its number, or NONE if the town was not in the graph when it was frozen
+	 */
+	private int localOf(Town town)
+	{
+		int id = graph.idOf(town);
+		return id < 0 || id >= local.length ? NONE : local[id];
+	}
+
+	/**
+	 * this method finds the town an arc leaves from. Arcs of a town are stored
+	 * together, so it is the last town whose first arc is not past this one.
+	 */
+	private int source(int arc)
+	{
+		int v = Arrays.binarySearch(offsets, arc);
+		if(v < 0)
+		{
+			return -v - 2;
+		}
+		// towns with no roads share their offset with the next town
+		while(offsets[v + 1] == arc)
+		{
+			v++;
+		}
+		return v;
+	}
+
+	/**
+	 * Search arrays for one thread, reset after every query by clearing only the
+	 * towns the query touched.
+	 */
+	private class SearchSpace {
+
+		private final int[] dist;
+		private final int[] arc;
+		private final int[] touched;
+		private int touchedCount;
+
+		/**
+		 * Constructor
+		 * @param n the number of towns
+		 */
+		SearchSpace(int n)
+		{
+			dist = new int[n];
+			arc = new int[n];
+			touched = new int[n];
+			Arrays.fill(dist, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * this method runs Dijkstra's search from a town, stopping once the target is
+		 * settled
+		 * @param s the source town
+		 * @param t the target town, or NONE to settle every reachable town
+		 */
+		void search(int s, int t)
+		{
+			IntPriorityQueue queue;
+			queue = queueKind.create(maxWeight);
+
+			dist[s] = 0;
+			touched[touchedCount++] = s;
+			queue.add(0, s);
+
+			while(!queue.isEmpty())
+			{
+				int d = queue.peekPriority();
+				int u = queue.poll();
+				if(d > dist[u])
+				{
+					continue;
+				}
+				if(u == t)
+				{
+					return;
+				}
+
+				for(int k = offsets[u]; k < offsets[u + 1]; k++)
+				{
+					int w = targets[k];
+					int nDist = d + weights[k];
+					if(nDist < dist[w])
+					{
+						if(dist[w] == Integer.MAX_VALUE)
+						{
+							touched[touchedCount++] = w;
+						}
+						dist[w] = nDist;
+						arc[w] = k;
+						queue.add(nDist, w);
+					}
+				}
+			}
+		}
+
+		void reset()
+		{
+			for(int k = 0; k < touchedCount; k++)
+			{
+				dist[touched[k]] = Integer.MAX_VALUE;
+			}
+			touchedCount = 0;
+		}
+	}
+}
@@ -0,0 +1,644 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A graph of towns and roads that many threads may read and change at once.
+ *
+ * Towns are numbered by dense int IDs, like Graph's, and the roads touching each
+ * town sit in a list that is never changed once published: a writer copies it,
+ * edits the copy and stores it back. Readers therefore never lock and never block
+ * writers. Writers lock only the towns they touch, through a fixed array of
+ * striped locks taken in stripe order: adding or removing a road locks its two
+ * towns, removing a town locks it and its neighbours. Only handing out a new
+ * town's ID takes a lock shared by the whole graph, and it is held for just that.
+ * A reader running next to a writer may see a road from one end before the other,
+ * but never a road whose town is already gone from both.
+ *
+ * Searches run Graph's own ID-based Dijkstra's search over these lists, keeping
+ * their state in local variables, and dijkstraShortestPath keeps its result per
+ * thread, so queries from different threads never mix.
+ */
+public class ConcurrentGraph implements GraphInterface<Town, Road> {
+
+	private static final int STRIPES = 64;
+	private static final int BLOCK = 1024;
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	private final ReentrantLock indexLock = new ReentrantLock();
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+	private volatile Block[] blocks = new Block[0];
+	private volatile int bound;
+	private final ThreadLocal<Map<Town, Integer>> lastDistances = ThreadLocal.withInitial(HashMap::new);
+
+	/**
+	 * Constructor
+	 */
+	public ConcurrentGraph()
+	{
+		for(int k = 0; k < STRIPES; k++)
+		{
+			locks[k] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * this method Returns an edge connecting source vertex to target vertex, or null
+	 * if either vertex is null or missing or no such edge exists
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @return an edge connecting source vertex to target vertex.
+	 */
+	@Override
+	public Road getEdge(Town sourceVertex, Town destinationVertex)
+	{
+		int source;
+		source = idOf(sourceVertex);
+
+		int destination;
+		destination = idOf(destinationVertex);
+
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING)
+		{
+			return null;
+		}
+		ArrayList<Road> touching;
+		touching = roadsAt(source);
+		if(touching == null)
+		{
+			return null;
+		}
+		for(Road r : touching)
+		{
+			if(r.getOppositeId(source) == destination)
+			{
+				return r;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * this method Creates a new edge in this graph, going from the source vertex to the
+	 * target vertex, and returns the created edge. It locks only the two towns.
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param weight weight of the edge
+	 * @param description description for edge
+	 * @return The newly created edge
+	 * @throws IllegalArgumentException if source or target vertices are not
+	 * found in the graph, or the weight is negative, as in Graph.
+	 * @throws NullPointerException if any of the specified vertices is null.
+	 */
+	@Override
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description)
+	{
+		if(sourceVertex == null || destinationVertex == null)
+		{
+			throw new NullPointerException();
+		}
+		int source;
+		source = idOf(sourceVertex);
+
+		int destination;
+		destination = idOf(destinationVertex);
+
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING || weight < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		int[] stripes;
+		stripes = stripes(source, new int[] {destination});
+		lock(stripes);
+		try
+		{
+			ArrayList<Road> fromSource = roadsAt(source);
+			ArrayList<Road> fromDestination = roadsAt(destination);
+			if(fromSource == null || fromDestination == null)
+			{
+				// removed by another thread since the lookup
+				throw new IllegalArgumentException();
+			}
+			Road road = new Road(townAt(source), townAt(destination), weight, description, source, destination);
+			setRoadsAt(source, with(fromSource, road));
+			if(destination != source)
+			{
+				setRoadsAt(destination, with(fromDestination, road));
+			}
+			return road;
+		}
+		finally
+		{
+			unlock(stripes);
+		}
+	}
+
+	/**
+	 * this method Adds the specified vertex to this graph if not already present. It
+	 * holds the graph-wide lock only while giving the town its ID.
+	 * @param v vertex to be added to this graph.
+	 * @return true if this graph did not already contain the specified vertex.
+	 * @throws NullPointerException if the specified vertex is null.
+	 */
+	@Override
+	public boolean addVertex(Town v)
+	{
+		if(v == null)
+		{
+			throw new NullPointerException();
+		}
+		indexLock.lock();
+		try
+		{
+			if(ids.containsKey(v.getName()))
+			{
+				return false;
+			}
+			int id = bound;
+			if(id / BLOCK == blocks.length)
+			{
+				Block[] grown = Arrays.copyOf(blocks, blocks.length + 1);
+				grown[blocks.length] = new Block();
+				blocks = grown;
+			}
+			Block block = blocks[id / BLOCK];
+			block.towns.set(id % BLOCK, v);
+			block.roads.set(id % BLOCK, new ArrayList<>());
+			bound = id + 1;
+			ids.put(v.getName(), id);
+			return true;
+		}
+		finally
+		{
+			indexLock.unlock();
+		}
+	}
+
+	/**
+	 * this method Returns true if and only if this graph contains an edge between
+	 * the two vertices, in either direction
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @return true if this graph contains the specified edge.
+	 */
+	@Override
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex)
+	{
+		return getEdge(sourceVertex, destinationVertex) != null;
+	}
+
+	/**
+	 * this method Returns true if this graph contains the specified vertex
+	 * @param v vertex whose presence in this graph is to be tested.
+	 * @return true if this graph contains the specified vertex, false if it is null
+	 */
+	@Override
+	public boolean containsVertex(Town v)
+	{
+		return idOf(v) != TownIndex.MISSING;
+	}
+
+	/**
+	 * this method Returns a copy of the roads, which later changes to the graph do not
+	 * affect. Roads added or removed while it is taken may or may not be in it.
+	 * @return a set of the edges contained in this graph.
+	 */
+	@Override
+	public Set<Road> edgeSet()
+	{
+		int n;
+		n = bound;
+
+		Set<Road> copy;
+		copy = Graph.roadSet();
+		for(int id = 0; id < n; id++)
+		{
+			ArrayList<Road> touching = roadsAt(id);
+			if(touching != null)
+			{
+				copy.addAll(touching);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * this method Returns a copy of the edges touching the specified vertex
+	 * @param vertex the vertex for which a set of touching edges is to be
+	 * returned.
+	 * @return a set of all edges touching the specified vertex.
+	 * @throws IllegalArgumentException if vertex is not found in the graph.
+	 * @throws NullPointerException if vertex is null.
+	 */
+	@Override
+	public Set<Road> edgesOf(Town vertex)
+	{
+		if(vertex == null)
+		{
+			throw new NullPointerException();
+		}
+		int id;
+		id = idOf(vertex);
+
+		ArrayList<Road> touching;
+		touching = id == TownIndex.MISSING ? null : roadsAt(id);
+		if(touching == null)
+		{
+			throw new IllegalArgumentException();
+		}
+		Set<Road> copy;
+		copy = Graph.roadSet();
+		copy.addAll(touching);
+		return copy;
+	}
+
+	/**
+	 * this method Removes an edge going from source vertex to target vertex, if such
+	 * vertices and such edge exist in this graph. It locks only the two towns.
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param weight weight of the edge
+	 * @param description description of the edge
+	 * @return The removed edge, or null if no edge removed.
+	 */
+	@Override
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description)
+	{
+		int source;
+		source = idOf(sourceVertex);
+
+		int destination;
+		destination = idOf(destinationVertex);
+
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING)
+		{
+			return null;
+		}
+		int[] stripes;
+		stripes = stripes(source, new int[] {destination});
+		lock(stripes);
+		try
+		{
+			ArrayList<Road> fromSource = roadsAt(source);
+			ArrayList<Road> fromDestination = roadsAt(destination);
+			if(fromSource == null || fromDestination == null)
+			{
+				return null;
+			}
+			Road road = null;
+			for(Road r : fromSource)
+			{
+				if(r.getOppositeId(source) == destination && (weight > -1) && description != null)
+				{
+					road = r;
+				}
+			}
+			if(road == null)
+			{
+				return null;
+			}
+			setRoadsAt(source, without(fromSource, road));
+			if(destination != source)
+			{
+				setRoadsAt(destination, without(fromDestination, road));
+			}
+			return road;
+		}
+		finally
+		{
+			unlock(stripes);
+		}
+	}
+
+	/**
+	 * this method Removes the specified vertex from this graph including all its
+	 * touching edges if present. It locks the town and its neighbours only.
+	 * @param v vertex to be removed from this graph, if present.
+	 * @return true if the graph contained the specified vertex; false otherwise.
+	 */
+	@Override
+	public boolean removeVertex(Town v)
+	{
+		while(true)
+		{
+			int id = idOf(v);
+			ArrayList<Road> touching = id == TownIndex.MISSING ? null : roadsAt(id);
+			if(touching == null)
+			{
+				return false;
+			}
+			int[] neighbours = new int[touching.size()];
+			for(int k = 0; k < neighbours.length; k++)
+			{
+				neighbours[k] = touching.get(k).getOppositeId(id);
+			}
+
+			int[] stripes = stripes(id, neighbours);
+			lock(stripes);
+			try
+			{
+				// every change to the town's roads needs its lock, so once it is held
+				// an unchanged list means the neighbours locked are all of them
+				if(roadsAt(id) != touching)
+				{
+					continue;
+				}
+				for(Road r : touching)
+				{
+					int other = r.getOppositeId(id);
+					if(other != id)
+					{
+						setRoadsAt(other, without(roadsAt(other), r));
+					}
+				}
+				setRoadsAt(id, null);
+				blocks[id / BLOCK].towns.set(id % BLOCK, null);
+				ids.remove(v.getName(), id);
+				return true;
+			}
+			finally
+			{
+				unlock(stripes);
+			}
+		}
+	}
+
+	/**
+	 * this method Returns a copy of the towns, which later changes to the graph do
+	 * not affect
+	 * @return a set of the towns contained in this graph
+	 */
+	@Override
+	public Set<Town> vertexSet()
+	{
+		int n;
+		n = bound;
+
+		Set<Town> copy;
+		copy = new HashSet<>();
+		for(int id = 0; id < n; id++)
+		{
+			Town town = townAt(id);
+			if(town != null)
+			{
+				copy.add(town);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * this method returns the town stored under a name
+	 * @param name the town's name
+	 * @return the town, or null if the graph has no town by that name
+	 */
+	public Town getTown(String name)
+	{
+		Integer id = name == null ? null : ids.get(name);
+		return id == null ? null : townAt(id);
+	}
+
+	/**
+	 * this method Finds the shortest path from the sourceVertex to the destinationVertex.
+	 * The search stops once the destinationVertex is settled.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An arraylist of Strings that describe the path from sourceVertex
+	 * to destinationVertex, empty if there is none
+	 */
+	@Override
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex)
+	{
+		return shortestPaths(sourceVertex, Collections.singleton(destinationVertex)).get(destinationVertex);
+	}
+
+	/**
+	 * this method finds the shortest paths from the sourceVertex to each of several
+	 * destinations with a single search, as Graph.shortestPaths does. Towns added
+	 * after the search starts are not reached.
+	 * @param sourceVertex starting vertex
+	 * @param destinations the ending vertices
+	 * @return a map from every destination to the strings describing its path, in the
+	 * same format as shortestPath. Unreachable destinations map to an empty list.
+	 */
+	public Map<Town, ArrayList<String>> shortestPaths(Town sourceVertex, Collection<Town> destinations)
+	{
+		int n;
+		n = bound;
+
+		int source;
+		source = idOf(sourceVertex, n);
+
+		ArrayList<Town> wanted;
+		wanted = new ArrayList<>(destinations);
+
+		int[] targets;
+		targets = new int[wanted.size()];
+		for(int k = 0; k < targets.length; k++)
+		{
+			targets[k] = idOf(wanted.get(k), n);
+		}
+
+		int[] dist = new int[n];
+		Road[] prev = new Road[n];
+		Arrays.fill(dist, Graph.UNREACHED);
+		int[] found = Arrays.stream(targets).filter(id -> id != TownIndex.MISSING).toArray();
+		if(found.length > 0)
+		{
+			Graph.search(source, found, dist, prev, new BinaryHeapQueue(), this :: roadsAt);
+		}
+
+		Map<Town, ArrayList<String>> paths;
+		paths = new HashMap<>();
+		for(int k = 0; k < targets.length; k++)
+		{
+			int id = targets[k];
+			if(id != TownIndex.MISSING && prev[id] != null)
+			{
+				paths.put(wanted.get(k), Graph.describe(Graph.traceRoute(source, id, prev)));
+			}
+			else
+			{
+				paths.put(wanted.get(k), new ArrayList<>());
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Dijkstra's Shortest Path Method. The distances found are kept for the calling
+	 * thread only; see getLastDistances.
+	 * @param sourceVertex the vertex to find shortest path from
+	 */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex)
+	{
+		int n;
+		n = bound;
+
+		int[] dist = new int[n];
+		Arrays.fill(dist, Graph.UNREACHED);
+		Graph.search(idOf(sourceVertex, n), null, dist, new Road[n], new BinaryHeapQueue(), this :: roadsAt);
+
+		Map<Town, Integer> reached;
+		reached = new HashMap<>();
+		for(int id = 0; id < n; id++)
+		{
+			Town town = townAt(id);
+			if(dist[id] != Graph.UNREACHED && town != null)
+			{
+				reached.put(town, dist[id]);
+			}
+		}
+		lastDistances.set(reached);
+	}
+
+	/**
+	 * this method returns the distances found by the calling thread's last call to
+	 * dijkstraShortestPath
+	 * @return a map from every town reached to its distance
+	 */
+	public Map<Town, Integer> getLastDistances()
+	{
+		return Collections.unmodifiableMap(lastDistances.get());
+	}
+
+	/**
+	 * this method returns the ID of a town
+	 * @return the ID, or MISSING if the town is null or not in the graph
+	 */
+	private int idOf(Town town)
+	{
+		Integer id = town == null ? null : ids.get(town.getName());
+		return id == null ? TownIndex.MISSING : id;
+	}
+
+	/**
+	 * this method returns the ID of a town if it is below a bound read earlier, so a
+	 * search never meets an ID past the end of its arrays
+	 * @return the ID, or MISSING if the town is null, not in the graph, or newer
+	 */
+	private int idOf(Town town, int limit)
+	{
+		int id = idOf(town);
+		return id < limit ? id : TownIndex.MISSING;
+	}
+
+	/**
+	 * this method returns the town with an ID below the bound
+	 * @return the town, or null if it was removed
+	 */
+	private Town townAt(int id)
+	{
+		return blocks[id / BLOCK].towns.get(id % BLOCK);
+	}
+
+	/**
+	 * this method returns the published roads of a town with an ID below the bound.
+	 * The list is never changed, so it may be read without a lock.
+	 * @return the roads, or null if the town was removed
+	 */
+	private ArrayList<Road> roadsAt(int id)
+	{
+		return blocks[id / BLOCK].roads.get(id % BLOCK);
+	}
+
+	/**
+	 * this method publishes the roads of a town; the caller holds the town's lock
+	 */
+	private void setRoadsAt(int id, ArrayList<Road> touching)
+	{
+		blocks[id / BLOCK].roads.set(id % BLOCK, touching);
+	}
+
+	/**
+	 * this method returns a copy of a town's roads with one more road
+	 */
+	private static ArrayList<Road> with(ArrayList<Road> touching, Road road)
+	{
+		ArrayList<Road> copy;
+		copy = new ArrayList<>(touching.size() + 1);
+		copy.addAll(touching);
+		copy.add(road);
+		return copy;
+	}
+
+	/**
+	 * this method returns a copy of a town's roads without one road, compared by
+	 * identity as in Graph so that a parallel road is kept
+	 */
+	private static ArrayList<Road> without(ArrayList<Road> touching, Road road)
+	{
+		ArrayList<Road> copy;
+		copy = new ArrayList<>(touching.size());
+		for(Road r : touching)
+		{
+			if(r != road)
+			{
+				copy.add(r);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * this method returns the distinct lock stripes of some towns in ascending
+	 * order, the order every writer locks them in so that no two writers deadlock
+	 */
+	private static int[] stripes(int id, int[] others)
+	{
+		int[] stripes;
+		stripes = new int[others.length + 1];
+		stripes[0] = id % STRIPES;
+		for(int k = 0; k < others.length; k++)
+		{
+			stripes[k + 1] = others[k] % STRIPES;
+		}
+		Arrays.sort(stripes);
+
+		int distinct;
+		distinct = 0;
+		for(int k = 0; k < stripes.length; k++)
+		{
+			if(k == 0 || stripes[k] != stripes[k - 1])
+			{
+				stripes[distinct++] = stripes[k];
+			}
+		}
+		return Arrays.copyOf(stripes, distinct);
+	}
+
+	private void lock(int[] stripes)
+	{
+		for(int s : stripes)
+		{
+			locks[s].lock();
+		}
+	}
+
+	private void unlock(int[] stripes)
+	{
+		for(int k = stripes.length - 1; k >= 0; k--)
+		{
+			locks[stripes[k]].unlock();
+		}
+	}
+
+	/**
+	 * A fixed block of ID slots. Blocks are never copied once made, so a slot
+	 * stored by one writer is never lost when another writer grows the table.
+	 */
+	private static final class Block {
+
+		private final AtomicReferenceArray<Town> towns = new AtomicReferenceArray<>(BLOCK);
+		private final AtomicReferenceArray<ArrayList<Road>> roads = new AtomicReferenceArray<>(BLOCK);
+	}
+}
@@ -0,0 +1,146 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ConcurrentGraphStudentTest {
+	private GraphInterface<Town,Road> graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		 graph = new ConcurrentGraph();
+		  town = new Town[12];
+		  
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+		  
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		assertEquals(12, graph.edgeSet().size());
+		assertEquals(new Road(town[2], town[11],6, "Road_12"), graph.getEdge(town[2], town[11]));
+		assertEquals(false, graph.addVertex(new Town("Town_1")));
+		graph.removeEdge(town[2], town[11], 6, "Road_12");
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+		assertEquals(true, graph.removeVertex(town[10]));
+		assertEquals(false, graph.containsVertex(town[10]));
+		assertEquals(7, graph.edgeSet().size());
+		assertTrue(graph.edgesOf(town[11]).isEmpty());
+	}
+
+	@Test
+	public void testShortestPath() {
+		ArrayList<String> path = graph.shortestPath(town[1], town[11]);
+		  assertEquals("Town_1 via Road_1 to Town_2 2 mi",path.get(0).trim());
+		  assertEquals("Town_2 via Road_12 to Town_11 6 mi",path.get(1).trim());
+		graph.dijkstraShortestPath(town[1]);
+		assertEquals(Integer.valueOf(15), ((ConcurrentGraph) graph).getLastDistances().get(town[6]));
+	}
+
+	@Test
+	public void testConcurrentReadersAndWriters() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<?>> work = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int id = t;
+			work.add(pool.submit(() -> {
+				for (int n = 0; n < 200; n++) {
+					Town extra = new Town("Extra_" + id + "_" + n);
+					graph.addVertex(extra);
+					graph.addEdge(extra, town[1 + n % 11], 1, "Spur_" + id + "_" + n);
+					graph.removeVertex(extra);
+				}
+			}));
+			work.add(pool.submit(() -> {
+				for (int n = 0; n < 200; n++) {
+					assertEquals(2, graph.shortestPath(town[1], town[11]).size());
+				}
+			}));
+		}
+		for (Future<?> f : work) {
+			f.get();
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(11, graph.vertexSet().size());
+		assertEquals(12, graph.edgeSet().size());
+	}
+
+	@Test
+	public void testManagerAllRoadsUnnamed() {
+		TownGraphManagerInterface concurrent = new ConcurrentTownGraphManager();
+		TownGraphManagerInterface plain = new TownGraphManager();
+		for (TownGraphManagerInterface manager : Arrays.asList(concurrent, plain)) {
+			manager.addTown("A");
+			manager.addTown("B");
+			manager.addTown("C");
+			manager.addRoad("A", "B", 1, null);
+			manager.addRoad("B", "C", 2, "Road_1");
+			manager.addRoad("A", "C", 3, "Road_0");
+		}
+		assertEquals(Arrays.asList("Road_0", "Road_1"), concurrent.allRoads());
+		assertEquals(plain.allRoads(), concurrent.allRoads());
+	}
+
+	@Test
+	public void testParallelWriters() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<?>> work = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int id = t;
+			work.add(pool.submit(() -> {
+				Town hub = new Town("Hub_" + id);
+				graph.addVertex(hub);
+				for (int n = 0; n < 1500; n++) {
+					Town spoke = new Town("Spoke_" + id + "_" + n);
+					graph.addVertex(spoke);
+					graph.addEdge(hub, spoke, 1, "Spur");
+					graph.addEdge(hub, spoke, 2, "Spur");
+					assertNotNull(graph.removeEdge(hub, spoke, 2, "Spur"));
+				}
+			}));
+		}
+		for (Future<?> f : work) {
+			f.get();
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(11 + 4 + 4 * 1500, graph.vertexSet().size());
+		assertEquals(12 + 4 * 1500, graph.edgeSet().size());
+		assertEquals(1500, graph.edgesOf(new Town("Hub_3")).size());
+		assertEquals(1, graph.shortestPath(new Town("Hub_2"), new Town("Spoke_2_1499")).size());
+		assertNull(graph.getEdge(town[1], new Town("Spoke_0_0")));
+		assertFalse(graph.addVertex(new Town("Spoke_1_7")));
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A TownGraphManager backed by a ConcurrentGraph, so that one manager can serve
+ * every request thread at once. Queries never lock, and changes lock only the
+ * towns they touch. Routes always come from Dijkstra's search, since the prebuilt
+ * indexes of TownGraphManager would have to be rebuilt on every change.
+ */
+public class ConcurrentTownGraphManager implements TownGraphManagerInterface {
+
+	private final ConcurrentGraph graph = new ConcurrentGraph();
+
+	/**
+	 * this method Adds a road with 2 towns and a road name
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param roadName name of road
+	 * @return true if the road was added successfully
+	 */
+	@Override
+	public boolean addRoad(String town1, String town2, int weight, String roadName)
+	{
+		return graph.addEdge(town(town1), town(town2), weight, roadName) != null;
+	}
+
+	/**
+	 * this method Returns the name of the road that both towns are connected through
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return name of road if town 1 and town2 are in the same road, returns null if not
+	 */
+	@Override
+	public String getRoad(String town1, String town2)
+	{
+		Road road;
+		road = graph.getEdge(town(town1), town(town2));
+		return road == null ? null : road.getName();
+	}
+
+	/**
+	 * this method Adds a town to the graph
+	 * @param v the town's name  (lastname, firstname)
+	 * @return true if the town was successfully added, false if not
+	 */
+	@Override
+	public boolean addTown(String v)
+	{
+		return graph.addVertex(town(v));
+	}
+
+	/**
+	 * this method Gets a town with a given name
+	 * @param name the town's name
+	 * @return the Town specified by the name, or null if town does not exist
+	 */
+	@Override
+	public Town getTown(String name)
+	{
+		return graph.getTown(name);
+	}
+
+	/**
+	 * this method Determines if a town is already in the graph
+	 * @param v the town's name
+	 * @return true if the town is in the graph, false if not
+	 */
+	@Override
+	public boolean containsTown(String v)
+	{
+		return graph.getTown(v) != null;
+	}
+
+	/**
+	 * this method Determines if a road is in the graph
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return true if the road is in the graph, false if not
+	 */
+	@Override
+	public boolean containsRoadConnection(String town1, String town2)
+	{
+		return graph.containsEdge(town(town1), town(town2));
+	}
+
+	/**
+	 * this method Creates an arraylist of all road titles in sorted order by road name.
+	 * Roads with no name are left out, as in TownGraphManager.
+	 * @return an arraylist of all road titles in sorted order by road name
+	 */
+	@Override
+	public ArrayList<String> allRoads()
+	{
+		return graph.edgeSet().stream().map(Road :: getName).filter(Objects :: nonNull).sorted().collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	/**
+	 * this method Deletes a road from the graph
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param roadName the road name
+	 * @return true if the road was successfully deleted, false if not
+	 */
+	@Override
+	public boolean deleteRoadConnection(String town1, String town2, String road)
+	{
+		return graph.removeEdge(town(town1), town(town2), 0, road) != null;
+	}
+
+	/**
+	 * this method Deletes a town from the graph
+	 * @param v name of town (lastname, firstname)
+	 * @return true if the town was successfully deleted, false if not
+	 */
+	@Override
+	public boolean deleteTown(String v)
+	{
+		return graph.removeVertex(town(v));
+	}
+
+	/**
+	 * this method Creates an arraylist of all towns in alphabetical order (last name, first name)
+	 * @return an arraylist of all towns in alphabetical order (last name, first name)
+	 */
+	@Override
+	public ArrayList<String> allTowns()
+	{
+		return graph.vertexSet().stream().map(Town::getName).sorted().collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	/**
+	 * this method Returns the shortest path from town 1 to town 2
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return an Arraylist of roads connecting the two towns together, empty if the
+	 * towns have no path to connect them.
+	 */
+	@Override
+	public ArrayList<String> getPath(String town1, String town2)
+	{
+		return graph.shortestPath(town(town1), town(town2));
+	}
+
+	/**
+	 * this method Returns the shortest path from every source town to every target town.
+	 * Each source is searched only once.
+	 * @param sources names of the starting towns
+	 * @param targets names of the ending towns
+	 * @return a map from each source to a map from each target to its path, in the
+	 * same format as getPath. Targets with no path from a source map to an empty list.
+	 */
+	@Override
+	public Map<String, Map<String, ArrayList<String>>> getPaths(Collection<String> sources, Collection<String> targets)
+	{
+		ArrayList<Town> destinations;
+		destinations = targets.stream().map(this::town).collect(Collectors.toCollection(ArrayList::new));
+
+		Map<String, Map<String, ArrayList<String>>> paths;
+		paths = new LinkedHashMap<>();
+		for(String source : sources)
+		{
+			Map<Town, ArrayList<String>> found;
+			found = graph.shortestPaths(town(source), destinations);
+
+			Map<String, ArrayList<String>> row;
+			row = new LinkedHashMap<>();
+			for(Town destination : destinations)
+			{
+				row.put(destination.getName(), found.get(destination));
+			}
+			paths.put(source, row);
+		}
+		return paths;
+	}
+
+	/**
+	 * this method looks a town up by name, reusing the graph's town when it has one
+	 * @param name the town's name
+	 * @return the graph's town, or a new town by that name if the graph has none
+	 */
+	private Town town(String name)
+	{
+		Town known;
+		known = graph.getTown(name);
+		return known != null ? known : new Town(name);
+	}
+}
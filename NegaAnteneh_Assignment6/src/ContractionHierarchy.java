@@ -0,0 +1,747 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A Contraction Hierarchy built once from a Graph of towns and roads.
+ *
+ * Preprocessing contracts the towns one at a time, least important first, adding a
+ * shortcut road around each contracted town wherever it lay on the only shortest
+ * path between two of its neighbours. A query then only has to search upward in
+ * the resulting order from both ends, which settles a tiny fraction of the towns
+ * a plain Dijkstra would. Shortcuts remember the two roads they replace so that
+ * routes are expanded back into the original roads.
+ *
+ * Towns are numbered by their IDs in the graph, so every array is indexed by the
+ * same dense IDs the graph uses and no lookup is boxed.
+ *
+ * The hierarchy is a snapshot: changes made to the graph afterwards are not seen,
+ * and a new hierarchy has to be built.
+ */
+public class ContractionHierarchy {
+
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+	private static final int SIMULATED_SETTLE_LIMIT = 50;
+	private static final int NONE = -1;
+
+	private final Graph graph;
+	private final Town[] towns;
+	private final int townCount;
+
+	private int edgeCount;
+	private int[] edgeA;
+	private int[] edgeB;
+	private int[] edgeWeight;
+	private int[] edgeFirst;
+	private int[] edgeSecond;
+	private int[] edgeMiddle;
+	private Road[] edgeRoad;
+
+	private final int[] rank;
+
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upWeights;
+	private int[] upEdges;
+
+	private final ThreadLocal<SearchSpace> spaces;
+
+	/**
+	 * Constructor, contracts every town of the graph
+	 * @param graph the graph to preprocess
+	 */
+	public ContractionHierarchy(Graph graph)
+	{
+		this.graph = graph;
+
+		int n;
+		n = graph.idBound();
+
+		towns = new Town[n];
+		for(int v = 0; v < n; v++)
+		{
+			towns[v] = graph.townAt(v);
+		}
+		townCount = graph.vertexSet().size();
+
+		int capacity;
+		capacity = Math.max(16, graph.edgeSet().size() * 2);
+		edgeA = new int[capacity];
+		edgeB = new int[capacity];
+		edgeWeight = new int[capacity];
+		edgeFirst = new int[capacity];
+		edgeSecond = new int[capacity];
+		edgeMiddle = new int[capacity];
+		edgeRoad = new Road[capacity];
+
+		for(int a = 0; a < n; a++)
+		{
+			if(towns[a] == null)
+			{
+				continue;
+			}
+			for(Road r : graph.touchingRoads(a))
+			{
+				int b = r.getOppositeId(a);
+				if(a < b)
+				{
+					addEdge(a, b, r.getWeight(), r, NONE, NONE, NONE);
+				}
+			}
+		}
+
+		rank = new Contractor(n).contractAll();
+		buildUpwardGraph();
+
+		spaces = ThreadLocal.withInitial(() -> new SearchSpace(towns.length));
+	}
+
+	/**
+	 * this method finds the shortest route between two towns
+	 * @param source the starting town
+	 * @param destination the ending town
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if either town is unknown or there is no route
+	 */
+	public ArrayList<Road> route(Town source, Town destination)
+	{
+		ArrayList<Road> route;
+		route = new ArrayList<>();
+
+		int s = idOf(source);
+		int t = idOf(destination);
+		if(s == NONE || t == NONE || s == t)
+		{
+			return route;
+		}
+
+		SearchSpace space;
+		space = spaces.get();
+
+		int meet;
+		meet = space.search(s, t);
+		if(meet != NONE)
+		{
+			int[] fPath;
+			fPath = new int[16];
+
+			int steps;
+			steps = 0;
+
+			int current;
+			current = meet;
+			while(current != s)
+			{
+				int e = space.fEdge[current];
+				if(steps == fPath.length)
+				{
+					fPath = Arrays.copyOf(fPath, steps * 2);
+				}
+				fPath[steps++] = e;
+				current = other(e, current);
+			}
+			current = s;
+			for(int k = steps - 1; k >= 0; k--)
+			{
+				unpack(fPath[k], current, route);
+				current = other(fPath[k], current);
+			}
+			while(current != t)
+			{
+				int e = space.bEdge[current];
+				unpack(e, current, route);
+				current = other(e, current);
+			}
+		}
+		space.reset();
+
+		return route;
+	}
+
+	/**
+	 * this method returns the number of shortcut roads added by preprocessing
+	 * @return the number of shortcuts
+	 */
+	public int getShortcutCount()
+	{
+		int shortcuts;
+		shortcuts = 0;
+		for(int e = 0; e < edgeCount; e++)
+		{
+			if(edgeRoad[e] == null)
+			{
+				shortcuts++;
+			}
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * this method returns the towns from the last contracted to the first. Towns
+	 * contracted late sit on many shortest routes, which makes this a good order
+	 * for choosing hubs.
+	 * @return every town, most important first
+	 */
+	public Town[] getTownsByImportance()
+	{
+		Town[] ordered;
+		ordered = new Town[townCount];
+		for(int v = 0; v < towns.length; v++)
+		{
+			if(towns[v] != null)
+			{
+				ordered[townCount - 1 - rank[v]] = towns[v];
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * this method returns the graph ID a town had when the hierarchy was built
+	 * @param town the town
+	 * @return its ID, or NONE if the town was not in the graph then
+	 */
+	private int idOf(Town town)
+	{
+		int id = graph.idOf(town);
+		return id < 0 || id >= towns.length || towns[id] == null ? NONE : id;
+	}
+
+	/**
+	 * this method appends the original roads an edge stands for, walking it from the given town
+	 * @param edge the edge to expand
+	 * @param from the end of the edge the walk starts at
+	 * @param route the list the roads are added to
+	 */
+	private void unpack(int edge, int from, ArrayList<Road> route)
+	{
+		int[] stackEdge;
+		stackEdge = new int[16];
+
+		int[] stackFrom;
+		stackFrom = new int[16];
+
+		int top;
+		top = 0;
+		stackEdge[top] = edge;
+		stackFrom[top] = from;
+		top++;
+
+		while(top > 0)
+		{
+			top--;
+			int e = stackEdge[top];
+			int f = stackFrom[top];
+
+			if(edgeRoad[e] != null)
+			{
+				Road r = edgeRoad[e];
+				route.add(new Road(towns[f], towns[other(e, f)], r.getWeight(), r.getName()));
+				continue;
+			}
+
+			if(top + 2 > stackEdge.length)
+			{
+				stackEdge = Arrays.copyOf(stackEdge, stackEdge.length * 2);
+				stackFrom = Arrays.copyOf(stackFrom, stackFrom.length * 2);
+			}
+
+			int near;
+			int far;
+			if(edgeA[e] == f)
+			{
+				near = edgeFirst[e];
+				far = edgeSecond[e];
+			}
+			else
+			{
+				near = edgeSecond[e];
+				far = edgeFirst[e];
+			}
+			stackEdge[top] = far;
+			stackFrom[top] = edgeMiddle[e];
+			top++;
+			stackEdge[top] = near;
+			stackFrom[top] = f;
+			top++;
+		}
+	}
+
+	/**
+	 * this method returns the end of an edge opposite the given town
+	 */
+	private int other(int edge, int town)
+	{
+		return edgeA[edge] == town ? edgeB[edge] : edgeA[edge];
+	}
+
+	/**
+	 * this method stores a road or shortcut and returns its edge number
+	 */
+	private int addEdge(int a, int b, int weight, Road road, int first, int second, int middle)
+	{
+		if(edgeCount == edgeA.length)
+		{
+			int capacity = edgeA.length * 2;
+			edgeA = Arrays.copyOf(edgeA, capacity);
+			edgeB = Arrays.copyOf(edgeB, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+			edgeMiddle = Arrays.copyOf(edgeMiddle, capacity);
+			edgeRoad = Arrays.copyOf(edgeRoad, capacity);
+		}
+		edgeA[edgeCount] = a;
+		edgeB[edgeCount] = b;
+		edgeWeight[edgeCount] = weight;
+		edgeFirst[edgeCount] = first;
+		edgeSecond[edgeCount] = second;
+		edgeMiddle[edgeCount] = middle;
+		edgeRoad[edgeCount] = road;
+		return edgeCount++;
+	}
+
+	/**
+	 * this method keeps, for every town, only the edges leading to a town contracted
+	 * after it, packed into offset and target arrays
+	 */
+	private void buildUpwardGraph()
+	{
+		int n;
+		n = towns.length;
+
+		upOffsets = new int[n + 1];
+		for(int e = 0; e < edgeCount; e++)
+		{
+			int low = rank[edgeA[e]] < rank[edgeB[e]] ? edgeA[e] : edgeB[e];
+			upOffsets[low + 1]++;
+		}
+		for(int v = 0; v < n; v++)
+		{
+			upOffsets[v + 1] += upOffsets[v];
+		}
+
+		upTargets = new int[edgeCount];
+		upWeights = new int[edgeCount];
+		upEdges = new int[edgeCount];
+
+		int[] fill;
+		fill = Arrays.copyOf(upOffsets, n);
+		for(int e = 0; e < edgeCount; e++)
+		{
+			int low = rank[edgeA[e]] < rank[edgeB[e]] ? edgeA[e] : edgeB[e];
+			int slot = fill[low]++;
+			upTargets[slot] = other(e, low);
+			upWeights[slot] = edgeWeight[e];
+			upEdges[slot] = e;
+		}
+	}
+
+	/**
+	 * Contracts the towns in order of importance and records that order.
+	 */
+	private class Contractor {
+
+		private final int n;
+		private final int[][] incident;
+		private final int[] degree;
+		private final boolean[] contracted;
+		private final int[] deletedNeighbours;
+
+		private final int[] neighbour;
+		private final int[] neighbourEdge;
+		private final int[] neighbourSlot;
+		private int neighbourCount;
+
+		private final int[] witnessDist;
+		private final int[] witnessTouched;
+		private int witnessTouchedCount;
+		private final BinaryHeapQueue witnessQueue = new BinaryHeapQueue();
+
+		/**
+		 * Constructor
+		 * @param n the ID bound of the towns
+		 */
+		Contractor(int n)
+		{
+			this.n = n;
+			incident = new int[n][];
+			degree = new int[n];
+			contracted = new boolean[n];
+			deletedNeighbours = new int[n];
+			neighbour = new int[n];
+			neighbourEdge = new int[n];
+			neighbourSlot = new int[n];
+			Arrays.fill(neighbourSlot, NONE);
+			witnessDist = new int[n];
+			Arrays.fill(witnessDist, Integer.MAX_VALUE);
+			witnessTouched = new int[n];
+
+			for(int v = 0; v < n; v++)
+			{
+				incident[v] = new int[4];
+			}
+			for(int e = 0; e < edgeCount; e++)
+			{
+				attach(edgeA[e], e);
+				attach(edgeB[e], e);
+			}
+		}
+
+		/**
+		 * this method contracts every town, always picking the one whose removal
+		 * adds the fewest shortcuts relative to the roads it removes
+		 * @return the contraction order of every town, indexed by ID
+		 */
+		int[] contractAll()
+		{
+			int[] rank;
+			rank = new int[n];
+
+			BinaryHeapQueue queue;
+			queue = new BinaryHeapQueue();
+			for(int v = 0; v < n; v++)
+			{
+				if(towns[v] != null)
+				{
+					queue.add(priority(v), v);
+				}
+			}
+
+			int order;
+			order = 0;
+			while(!queue.isEmpty())
+			{
+				int v = queue.poll();
+
+				int current = priority(v);
+				if(!queue.isEmpty() && current > queue.peekPriority())
+				{
+					queue.add(current, v);
+					continue;
+				}
+
+				contract(v, false);
+				contracted[v] = true;
+				rank[v] = order++;
+				for(int k = 0; k < neighbourCount; k++)
+				{
+					deletedNeighbours[neighbour[k]]++;
+					detachContracted(neighbour[k]);
+				}
+				clearNeighbours();
+			}
+			return rank;
+		}
+
+		/**
+		 * this method estimates how costly it is to contract a town
+		 */
+		private int priority(int v)
+		{
+			int shortcuts;
+			shortcuts = contract(v, true);
+
+			int removed;
+			removed = neighbourCount;
+			clearNeighbours();
+
+			return shortcuts - removed + deletedNeighbours[v];
+		}
+
+		/**
+		 * this method finds the shortcuts needed to contract a town, adding them
+		 * unless only simulating. The neighbours found stay loaded until cleared.
+		 * @param v the town to contract
+		 * @param simulate true to only count the shortcuts
+		 * @return the number of shortcuts needed
+		 */
+		private int contract(int v, boolean simulate)
+		{
+			loadNeighbours(v);
+
+			int shortcuts;
+			shortcuts = 0;
+
+			for(int i = 0; i < neighbourCount - 1; i++)
+			{
+				int u = neighbour[i];
+				int uWeight = edgeWeight[neighbourEdge[i]];
+
+				int limit = 0;
+				for(int j = i + 1; j < neighbourCount; j++)
+				{
+					limit = Math.max(limit, uWeight + edgeWeight[neighbourEdge[j]]);
+				}
+				witnessSearch(u, v, limit, simulate ? SIMULATED_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+
+				for(int j = i + 1; j < neighbourCount; j++)
+				{
+					int w = neighbour[j];
+					int via = uWeight + edgeWeight[neighbourEdge[j]];
+					if(witnessDist[w] > via)
+					{
+						shortcuts++;
+						if(!simulate)
+						{
+							int e = addEdge(u, w, via, null, neighbourEdge[i], neighbourEdge[j], v);
+							attach(u, e);
+							attach(w, e);
+						}
+					}
+				}
+				clearWitness();
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * this method loads the uncontracted neighbours of a town, keeping the
+		 * lightest edge to each
+		 */
+		private void loadNeighbours(int v)
+		{
+			for(int k = 0; k < degree[v]; k++)
+			{
+				int e = incident[v][k];
+				int u = other(e, v);
+				if(contracted[u] || u == v)
+				{
+					continue;
+				}
+				if(neighbourSlot[u] == NONE)
+				{
+					neighbourSlot[u] = neighbourCount;
+					neighbour[neighbourCount] = u;
+					neighbourEdge[neighbourCount] = e;
+					neighbourCount++;
+				}
+				else if(edgeWeight[e] < edgeWeight[neighbourEdge[neighbourSlot[u]]])
+				{
+					neighbourEdge[neighbourSlot[u]] = e;
+				}
+			}
+		}
+
+		private void clearNeighbours()
+		{
+			for(int k = 0; k < neighbourCount; k++)
+			{
+				neighbourSlot[neighbour[k]] = NONE;
+			}
+			neighbourCount = 0;
+		}
+
+		/**
+		 * this method runs a bounded Dijkstra's search from a town over the
+		 * uncontracted towns, skipping the town being contracted
+		 * @param source the town to search from
+		 * @param skip the town being contracted
+		 * @param limit the distance beyond which no witness is useful
+		 * @param settleLimit the number of towns to settle before giving up
+		 */
+		private void witnessSearch(int source, int skip, int limit, int settleLimit)
+		{
+			BinaryHeapQueue queue;
+			queue = witnessQueue;
+			queue.clear();
+
+			touchWitness(source, 0);
+			queue.add(0, source);
+
+			int settledCount;
+			settledCount = 0;
+
+			while(!queue.isEmpty() && settledCount < settleLimit)
+			{
+				int d = queue.peekPriority();
+				int u = queue.poll();
+				if(d > witnessDist[u])
+				{
+					continue;
+				}
+				if(d > limit)
+				{
+					break;
+				}
+				settledCount++;
+
+				for(int k = 0; k < degree[u]; k++)
+				{
+					int e = incident[u][k];
+					int w = other(e, u);
+					if(w == skip || contracted[w])
+					{
+						continue;
+					}
+					int nDist = d + edgeWeight[e];
+					if(nDist <= limit && nDist < witnessDist[w])
+					{
+						touchWitness(w, nDist);
+						queue.add(nDist, w);
+					}
+				}
+			}
+		}
+
+		private void touchWitness(int v, int dist)
+		{
+			if(witnessDist[v] == Integer.MAX_VALUE)
+			{
+				witnessTouched[witnessTouchedCount++] = v;
+			}
+			witnessDist[v] = dist;
+		}
+
+		private void clearWitness()
+		{
+			for(int k = 0; k < witnessTouchedCount; k++)
+			{
+				witnessDist[witnessTouched[k]] = Integer.MAX_VALUE;
+			}
+			witnessTouchedCount = 0;
+		}
+
+		/**
+		 * this method drops the edges of a town that lead to contracted towns, which
+		 * no later search or contraction looks at again
+		 */
+		private void detachContracted(int v)
+		{
+			int kept;
+			kept = 0;
+			for(int k = 0; k < degree[v]; k++)
+			{
+				int e = incident[v][k];
+				if(!contracted[other(e, v)])
+				{
+					incident[v][kept++] = e;
+				}
+			}
+			degree[v] = kept;
+		}
+
+		private void attach(int v, int e)
+		{
+			if(degree[v] == incident[v].length)
+			{
+				incident[v] = Arrays.copyOf(incident[v], degree[v] * 2);
+			}
+			incident[v][degree[v]++] = e;
+		}
+	}
+
+	/**
+	 * The per-thread arrays of an upward bidirectional query, reset after every
+	 * query by clearing only the towns it touched.
+	 */
+	private class SearchSpace {
+
+		private final int[] fDist;
+		private final int[] bDist;
+		private final int[] fEdge;
+		private final int[] bEdge;
+		private final int[] touched;
+		private int touchedCount;
+		private final BinaryHeapQueue fQueue = new BinaryHeapQueue();
+		private final BinaryHeapQueue bQueue = new BinaryHeapQueue();
+
+		/**
+		 * Constructor
+		 * @param n the ID bound of the towns
+		 */
+		SearchSpace(int n)
+		{
+			fDist = new int[n];
+			bDist = new int[n];
+			fEdge = new int[n];
+			bEdge = new int[n];
+			touched = new int[n];
+			Arrays.fill(fDist, Integer.MAX_VALUE);
+			Arrays.fill(bDist, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * this method searches upward from both towns
+		 * @param s the source town
+		 * @param t the destination town
+		 * @return the town where the shortest route peaks, or NONE if there is no route
+		 */
+		int search(int s, int t)
+		{
+			touch(s);
+			fDist[s] = 0;
+			fQueue.add(0, s);
+			touch(t);
+			bDist[t] = 0;
+			bQueue.add(0, t);
+
+			int best;
+			best = Integer.MAX_VALUE;
+
+			int meet;
+			meet = NONE;
+
+			while(true)
+			{
+				boolean fDone = fQueue.isEmpty() || fQueue.peekPriority() >= best;
+				boolean bDone = bQueue.isEmpty() || bQueue.peekPriority() >= best;
+				if(fDone && bDone)
+				{
+					break;
+				}
+
+				boolean forward = !fDone && (bDone || fQueue.size() <= bQueue.size());
+				BinaryHeapQueue queue = forward ? fQueue : bQueue;
+				int[] dist = forward ? fDist : bDist;
+				int[] edge = forward ? fEdge : bEdge;
+				int[] otherDist = forward ? bDist : fDist;
+
+				int d = queue.peekPriority();
+				int u = queue.poll();
+				if(d > dist[u])
+				{
+					continue;
+				}
+				if(otherDist[u] != Integer.MAX_VALUE && d + otherDist[u] < best)
+				{
+					best = d + otherDist[u];
+					meet = u;
+				}
+
+				for(int k = upOffsets[u]; k < upOffsets[u + 1]; k++)
+				{
+					int w = upTargets[k];
+					int nDist = d + upWeights[k];
+					if(nDist < dist[w])
+					{
+						touch(w);
+						dist[w] = nDist;
+						edge[w] = upEdges[k];
+						queue.add(nDist, w);
+					}
+				}
+			}
+			return meet;
+		}
+
+		private void touch(int v)
+		{
+			if(fDist[v] == Integer.MAX_VALUE && bDist[v] == Integer.MAX_VALUE)
+			{
+				touched[touchedCount++] = v;
+			}
+		}
+
+		void reset()
+		{
+			for(int k = 0; k < touchedCount; k++)
+			{
+				fDist[touched[k]] = Integer.MAX_VALUE;
+				bDist[touched[k]] = Integer.MAX_VALUE;
+			}
+			touchedCount = 0;
+			fQueue.clear();
+			bQueue.clear();
+		}
+	}
+}
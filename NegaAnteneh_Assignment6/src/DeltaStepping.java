@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single-source shortest paths by delta-stepping, with the roads of each step
+ * relaxed in parallel on a ForkJoinPool.
+ *
+ * Towns wait in buckets of width delta by their tentative distance. The lowest
+ * non-empty bucket is emptied over and over, relaxing only its light roads (no
+ * longer than delta) since those can refill the same bucket; once it stays empty
+ * the heavy roads of every town it held are relaxed once. Each step relaxes a
+ * whole bucket of towns at once, which is what spreads the work over the cores.
+ *
+ * A town's label packs its distance in the high half and the town it was reached
+ * from in the low half, and is only ever lowered by compare-and-set, so distance
+ * and predecessor always change together. The distances are exactly those of
+ * Graph.dijkstraShortestPath; where two routes tie, either may be the one kept.
+ */
+public class DeltaStepping {
+
+	private static final int SEQUENTIAL_TOWNS = 256;
+	private static final long UNLABELED = Long.MAX_VALUE;
+
+	private final Graph graph;
+	private final int delta;
+	private final AtomicLongArray labels;
+
+	/**
+	 * Constructor
+	 * @param graph the graph to search
+	 * @param delta the bucket width
+	 */
+	private DeltaStepping(Graph graph, int delta)
+	{
+		this.graph = graph;
+		this.delta = delta;
+		labels = new AtomicLongArray(graph.idBound());
+		for(int id = 0; id < labels.length(); id++)
+		{
+			labels.set(id, UNLABELED);
+		}
+	}
+
+	/**
+	 * this method finds the shortest paths from a town on the common pool, with a
+	 * bucket width of the average road length
+	 * @param graph the graph to search
+	 * @param sourceVertex the vertex to find shortest paths from
+	 * @return the result of the search
+	 */
+	public static SingleSourcePaths search(Graph graph, Town sourceVertex)
+	{
+		int delta = (int) Math.ceil(graph.edgeSet().stream().mapToInt(Road::getWeight).average().orElse(1));
+		return search(graph, sourceVertex, Math.max(1, delta), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * this method finds the shortest paths from a town. The graph must not change
+	 * while the search runs.
+	 * @param graph the graph to search
+	 * @param sourceVertex the vertex to find shortest paths from
+	 * @param delta the bucket width; around the average road length works well
+	 * @param pool the pool to relax roads on
+	 * @return the result of the search; it reaches no town if the sourceVertex is
+	 * not in the graph
+	 * @throws IllegalArgumentException if delta is less than 1
+	 */
+	public static SingleSourcePaths search(Graph graph, Town sourceVertex, int delta, ForkJoinPool pool)
+	{
+		if(delta < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		int source;
+		source = graph.idOf(sourceVertex);
+		if(source == TownIndex.MISSING)
+		{
+			return new SingleSourcePaths(graph, sourceVertex, TownIndex.MISSING, new int[0], new Road[0]);
+		}
+
+		DeltaStepping search;
+		search = new DeltaStepping(graph, delta);
+		search.run(source, pool);
+
+		int[] dist;
+		dist = new int[graph.idBound()];
+
+		Road[] prev;
+		prev = new Road[dist.length];
+
+		pool.invoke(search.new TreeTask(0, dist.length, dist, prev));
+		prev[source] = null;
+		return new SingleSourcePaths(graph, sourceVertex, source, dist, prev);
+	}
+
+	/**
+	 * this method labels every town reachable from the source
+	 * @param source the ID of the source town
+	 * @param pool the pool to relax roads on
+	 */
+	private void run(int source, ForkJoinPool pool)
+	{
+		ArrayList<Bucket> buckets;
+		buckets = new ArrayList<>();
+
+		// the phase a town was last taken out of a bucket in, to skip duplicates
+		int[] taken;
+		taken = new int[labels.length()];
+		Arrays.fill(taken, -1);
+
+		labels.set(source, ((long) 0 << 32) | source);
+		file(buckets, source);
+
+		int phase;
+		phase = 0;
+		for(int b = 0; b < buckets.size(); b++)
+		{
+			Bucket settled;
+			settled = new Bucket();
+			while(buckets.get(b) != null && buckets.get(b).size > 0)
+			{
+				Bucket current = buckets.get(b);
+				buckets.set(b, null);
+
+				Bucket frontier = new Bucket();
+				for(int k = 0; k < current.size; k++)
+				{
+					int town = current.items[k];
+					if(taken[town] != phase && distance(town) / delta == b)
+					{
+						taken[town] = phase;
+						frontier.add(town);
+						settled.add(town);
+					}
+				}
+				phase++;
+				fileAll(buckets, pool.invoke(new RelaxTask(frontier, 0, frontier.size, true)));
+			}
+			fileAll(buckets, pool.invoke(new RelaxTask(settled, 0, settled.size, false)));
+		}
+	}
+
+	private int distance(int town)
+	{
+		return (int) (labels.get(town) >>> 32);
+	}
+
+	private void fileAll(ArrayList<Bucket> buckets, Bucket improved)
+	{
+		for(int k = 0; k < improved.size; k++)
+		{
+			file(buckets, improved.items[k]);
+		}
+	}
+
+	private void file(ArrayList<Bucket> buckets, int town)
+	{
+		int b = distance(town) / delta;
+		while(buckets.size() <= b)
+		{
+			buckets.add(null);
+		}
+		if(buckets.get(b) == null)
+		{
+			buckets.set(b, new Bucket());
+		}
+		buckets.get(b).add(town);
+	}
+
+	/**
+	 * A growable list of town IDs.
+	 */
+	private static class Bucket {
+
+		private int[] items = new int[8];
+		private int size;
+
+		void add(int town)
+		{
+			if(size == items.length)
+			{
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = town;
+		}
+
+		void addAll(Bucket other)
+		{
+			for(int k = 0; k < other.size; k++)
+			{
+				add(other.items[k]);
+			}
+		}
+	}
+
+	/**
+	 * Relaxes the light or the heavy roads of a range of towns, splitting the range
+	 * in half until it is small, and returns the towns whose labels it lowered.
+	 */
+	private class RelaxTask extends RecursiveTask<Bucket> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Bucket towns;
+		private final int first;
+		private final int last;
+		private final boolean light;
+
+		/**
+		 * Constructor
+		 * @param towns the towns to relax from
+		 * @param first the first position to relax
+		 * @param last one past the last position to relax
+		 * @param light true to relax roads no longer than delta, false for the rest
+		 */
+		RelaxTask(Bucket towns, int first, int last, boolean light)
+		{
+			this.towns = towns;
+			this.first = first;
+			this.last = last;
+			this.light = light;
+		}
+
+		@Override
+		protected Bucket compute()
+		{
+			if(last - first > SEQUENTIAL_TOWNS)
+			{
+				int middle = (first + last) >>> 1;
+				RelaxTask right = new RelaxTask(towns, middle, last, light);
+				right.fork();
+				Bucket improved = new RelaxTask(towns, first, middle, light).compute();
+				improved.addAll(right.join());
+				return improved;
+			}
+
+			Bucket improved;
+			improved = new Bucket();
+			for(int k = first; k < last; k++)
+			{
+				int town = towns.items[k];
+				int mDist = distance(town);
+				for(Road r : graph.touchingRoads(town))
+				{
+					if((r.getWeight() <= delta) != light)
+					{
+						continue;
+					}
+					int next = r.getOppositeId(town);
+					long label = ((long) (mDist + r.getWeight()) << 32) | town;
+					long known = labels.get(next);
+					while((label >>> 32) < (known >>> 32))
+					{
+						if(labels.compareAndSet(next, known, label))
+						{
+							improved.add(next);
+							break;
+						}
+						known = labels.get(next);
+					}
+				}
+			}
+			return improved;
+		}
+	}
+
+	/**
+	 * Turns the labels of a range of towns into distances and predecessor roads.
+	 */
+	private class TreeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int first;
+		private final int last;
+		private final int[] dist;
+		private final Road[] prev;
+
+		/**
+		 * Constructor
+		 * @param first the first town ID to fill
+		 * @param last one past the last town ID to fill
+		 * @param dist receives the distances
+		 * @param prev receives the predecessor roads
+		 */
+		TreeTask(int first, int last, int[] dist, Road[] prev)
+		{
+			this.first = first;
+			this.last = last;
+			this.dist = dist;
+			this.prev = prev;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(last - first > SEQUENTIAL_TOWNS * 16)
+			{
+				int middle = (first + last) >>> 1;
+				invokeAll(new TreeTask(first, middle, dist, prev), new TreeTask(middle, last, dist, prev));
+				return;
+			}
+			for(int town = first; town < last; town++)
+			{
+				long label = labels.get(town);
+				if(label == UNLABELED)
+				{
+					dist[town] = Graph.UNREACHED;
+					continue;
+				}
+				dist[town] = (int) (label >>> 32);
+
+				int from = (int) label;
+				int weight = dist[town] - distance(from);
+				for(Road r : graph.touchingRoads(town))
+				{
+					if(r.getOppositeId(town) == from && r.getWeight() == weight)
+					{
+						prev[town] = r;
+						break;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Dial's bucket queue for monotone searches over roads no longer than a known
+ * bound C. Every item waiting has a priority between the current minimum and the
+ * current minimum plus C, so C + 1 buckets used in a circle hold them all, one
+ * bucket per priority. Adding is a push onto a bucket; removing walks forward to
+ * the next non-empty bucket, never more than C steps.
+ */
+public class DialQueue implements IntPriorityQueue {
+
+	/**
+	 * The most buckets a queue may have, which caps the longest road at one less
+	 */
+	public static final int MAX_BUCKETS = 1 << 16;
+
+	private final int[][] buckets;
+	private final int[] bucketSizes;
+	private int current;
+	private boolean started;
+	private int size;
+
+	/**
+	 * Constructor
+	 * @param maxWeight the weight of the longest road the search may relax
+	 * @throws IllegalArgumentException if maxWeight is negative or needs more than
+	 * MAX_BUCKETS buckets
+	 */
+	public DialQueue(int maxWeight)
+	{
+		if(maxWeight < 0 || maxWeight >= MAX_BUCKETS)
+		{
+			throw new IllegalArgumentException();
+		}
+		buckets = new int[maxWeight + 1][];
+		bucketSizes = new int[maxWeight + 1];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the priority is below the last one removed
+	 * or more than the longest road beyond it; before anything is removed, the first
+	 * priority added stands in for the last one removed
+	 */
+	@Override
+	public void add(int priority, int item)
+	{
+		if(!started)
+		{
+			current = priority;
+			started = true;
+		}
+		if(priority < current || (long) priority - current >= buckets.length)
+		{
+			throw new IllegalArgumentException();
+		}
+		int b = priority % buckets.length;
+		if(buckets[b] == null)
+		{
+			buckets[b] = new int[4];
+		}
+		else if(bucketSizes[b] == buckets[b].length)
+		{
+			buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+		}
+		buckets[b][bucketSizes[b]++] = item;
+		size++;
+	}
+
+	@Override
+	public int peekPriority()
+	{
+		advance();
+		return current;
+	}
+
+	@Override
+	public int poll()
+	{
+		advance();
+		int b = current % buckets.length;
+		size--;
+		return buckets[b][--bucketSizes[b]];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * this method moves the current priority forward to the first non-empty bucket
+	 */
+	private void advance()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		while(bucketSizes[current % buckets.length] == 0)
+		{
+			current++;
+		}
+	}
+}
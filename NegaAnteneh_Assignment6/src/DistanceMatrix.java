@@ -0,0 +1,244 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The shortest distance between every pair of towns of a graph, stored as one
+ * flat int array of rows. Towns are kept in alphabetical order; row i holds the
+ * distances from the i-th town.
+ *
+ * Each row comes from one single-source Dijkstra's search, and the rows are
+ * computed in parallel on a ForkJoinPool. When the matrix would not fit in memory,
+ * write streams it to a file a block of rows at a time instead.
+ */
+public class DistanceMatrix {
+
+	/**
+	 * The distance stored between towns with no route between them
+	 */
+	public static final int NO_ROUTE = -1;
+
+	private final String[] towns;
+	private final int[] distances;
+
+	/**
+	 * Constructor
+	 * @param towns the town names in row order
+	 * @param distances the rows, one after another
+	 */
+	private DistanceMatrix(String[] towns, int[] distances)
+	{
+		this.towns = towns;
+		this.distances = distances;
+	}
+
+	/**
+	 * this method computes the distances between every pair of towns of a graph
+	 * @param graph the graph to measure
+	 * @param pool the pool to run the searches on
+	 * @return the distance matrix
+	 * @throws IllegalStateException if the matrix is too large to hold in memory
+	 */
+	public static DistanceMatrix compute(Graph graph, ForkJoinPool pool)
+	{
+		Town[] order;
+		order = sortedTowns(graph);
+
+		long cells;
+		cells = (long) order.length * order.length;
+		if(cells > Integer.MAX_VALUE - 8 || cells * Integer.BYTES > Runtime.getRuntime().maxMemory() / 2)
+		{
+			throw new IllegalStateException("Distance matrix of " + order.length + " towns does not fit in memory");
+		}
+
+		int[] distances;
+		distances = new int[(int) cells];
+		pool.invoke(new RowTask(graph, townIds(graph, order), 0, order.length, distances));
+
+		String[] names;
+		names = new String[order.length];
+		for(int n = 0; n < order.length; n++)
+		{
+			names[n] = order[n].getName();
+		}
+		return new DistanceMatrix(names, distances);
+	}
+
+	/**
+	 * this method computes the distances between every pair of towns of a graph and
+	 * writes them to a file without holding the whole matrix in memory. The file
+	 * holds the number of towns, then each town name, then every row of distances,
+	 * all in DataOutputStream format.
+	 * @param graph the graph to measure
+	 * @param pool the pool to run the searches on
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Graph graph, ForkJoinPool pool, File file) throws IOException
+	{
+		Town[] order;
+		order = sortedTowns(graph);
+
+		int n;
+		n = order.length;
+
+		long rowBytes;
+		rowBytes = Math.max(1L, (long) n * Integer.BYTES);
+
+		int blockRows;
+		blockRows = (int) Math.max(1, Math.min(Math.min(n, (Integer.MAX_VALUE - 8) / Math.max(1, n)), Runtime.getRuntime().maxMemory() / 4 / rowBytes));
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(n);
+			for(Town t : order)
+			{
+				out.writeUTF(t.getName());
+			}
+
+			int[] ids;
+			ids = townIds(graph, order);
+
+			int[] block;
+			block = new int[blockRows * n];
+			for(int first = 0; first < n; first += blockRows)
+			{
+				int last = Math.min(n, first + blockRows);
+				pool.invoke(new RowTask(graph, ids, first, last, block));
+				for(int k = 0; k < (last - first) * n; k++)
+				{
+					out.writeInt(block[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * this method returns the town names in row order
+	 * @return the towns, in alphabetical order
+	 */
+	public String[] getTowns()
+	{
+		return towns.clone();
+	}
+
+	/**
+	 * this method returns the distance between the towns at two positions
+	 * @param row position of the starting town
+	 * @param column position of the ending town
+	 * @return the distance, or NO_ROUTE if there is no route
+	 */
+	public int getDistance(int row, int column)
+	{
+		return distances[row * towns.length + column];
+	}
+
+	/**
+	 * this method returns the distance between two towns
+	 * @param town1 name of the starting town
+	 * @param town2 name of the ending town
+	 * @return the distance, or NO_ROUTE if there is no route or either town is unknown
+	 */
+	public int getDistance(String town1, String town2)
+	{
+		int row = Arrays.binarySearch(towns, town1);
+		int column = Arrays.binarySearch(towns, town2);
+		if(row < 0 || column < 0)
+		{
+			return NO_ROUTE;
+		}
+		return getDistance(row, column);
+	}
+
+	private static Town[] sortedTowns(Graph graph)
+	{
+		Town[] order;
+		order = graph.vertexSet().toArray(new Town[0]);
+		Arrays.sort(order);
+		return order;
+	}
+
+	/**
+	 * this method looks up the graph ID of every town once, so the row tasks index
+	 * their search results directly instead of looking up a name per cell
+	 */
+	private static int[] townIds(Graph graph, Town[] order)
+	{
+		int[] ids;
+		ids = new int[order.length];
+		for(int k = 0; k < order.length; k++)
+		{
+			ids[k] = graph.idOf(order[k]);
+		}
+		return ids;
+	}
+
+	/**
+	 * Fills a range of rows, splitting the range in half until each task has one row.
+	 */
+	private static class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Graph graph;
+		private final int[] ids;
+		private final int first;
+		private final int last;
+		private final int[] out;
+		private final int offset;
+
+		/**
+		 * Constructor
+		 * @param graph the graph to search
+		 * @param ids the graph IDs of the towns in row order
+		 * @param first the first row to fill
+		 * @param last one past the last row to fill
+		 * @param out the array receiving the rows, starting with row first
+		 */
+		RowTask(Graph graph, int[] ids, int first, int last, int[] out)
+		{
+			this(graph, ids, first, last, out, first);
+		}
+
+		private RowTask(Graph graph, int[] ids, int first, int last, int[] out, int offset)
+		{
+			this.graph = graph;
+			this.ids = ids;
+			this.first = first;
+			this.last = last;
+			this.out = out;
+			this.offset = offset;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(last - first > 1)
+			{
+				int middle = (first + last) >>> 1;
+				invokeAll(new RowTask(graph, ids, first, middle, out, offset), new RowTask(graph, ids, middle, last, out, offset));
+				return;
+			}
+			if(last == first)
+			{
+				return;
+			}
+
+			int[] dist;
+			dist = graph.distancesFrom(ids[first]);
+
+			int start;
+			start = (first - offset) * ids.length;
+			for(int column = 0; column < ids.length; column++)
+			{
+				int d = dist[ids[column]];
+				out[start + column] = d == Graph.UNREACHED ? NO_ROUTE : d;
+			}
+		}
+	}
+}
@@ -4,16 +4,22 @@
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Alert.AlertType;
@@ -26,7 +32,9 @@ public class FXMainPane extends VBox {
 	VBox addTownVBox, addRoadVBox, findConnectionVBox, bottomVBox;
 	HBox addTownHBox, addRoadNameHBox, addRoadHBox, addRoadTownsHBox, findConnectionHBox, bottomHBox;
 	Button addTownButton, addRoadButton, findConnectionButton, readFileButton, exitButton;
-	Button displayTownsButton, displayRoadsButton;
+	Button displayTownsButton, displayRoadsButton, cancelButton;
+	ProgressBar progressBar;
+	Label statusLabel;
 	TextField addTownTextField, addRoadTextField, specifyDistanceTextField;
 	TextArea findConnectionTextArea, displayTowns, displayRoads;
 	ComboBox<String> addSourceTownComboBox, addDestTownComboBox, sourceConnectionComboBox, destConnectionComboBox; 
@@ -34,6 +42,9 @@ public class FXMainPane extends VBox {
 
 	TownGraphManager graph;
 	private Alert alert = new Alert(AlertType.INFORMATION);
+	//most towns a ComboBox offers at once; typing narrows them down
+	private static final int SUGGESTIONS = 100;
+	private boolean suggesting;
 	
 	
 	FXMainPane() {
@@ -195,20 +206,35 @@ public class FXMainPane extends VBox {
 	    bottomHBox = new HBox();
 		readFileButton = new Button("Read File");
 		exitButton =new Button("Exit");
+		//progress of the file load or route search running in the background
+		cancelButton = new Button("Cancel");
+		cancelButton.setDisable(true);
+		progressBar = new ProgressBar(0);
+		progressBar.setVisible(false);
+		statusLabel = new Label("");
 
 		bottomVBox = new VBox();
 		bottomVBox.getChildren().addAll(bottomHBox);
 		bottomVBox.setStyle("-fx-border-color: gray;");
 
-		bottomHBox.getChildren().addAll(readFileButton, exitButton);
+		bottomHBox.getChildren().addAll(readFileButton, exitButton, cancelButton, progressBar, statusLabel);
 		
 		bottomHBox.setAlignment(Pos.CENTER);
 
 		VBox.setMargin(bottomHBox,inset);
 	    HBox.setMargin(readFileButton, inset);
 	    HBox.setMargin(exitButton, inset);
+	    HBox.setMargin(cancelButton, inset);
+	    HBox.setMargin(progressBar, inset);
+	    HBox.setMargin(statusLabel, inset);
 
 		getChildren().addAll(addTown, addRoad, findConnectionVBox, bottomHBox);
+
+		//type-ahead: each town ComboBox offers the towns starting with what has been typed
+		for (ComboBox<String> box : Arrays.asList(addSourceTownComboBox, addDestTownComboBox, sourceConnectionComboBox, destConnectionComboBox)) {
+			box.setEditable(true);
+			box.getEditor().textProperty().addListener((observable, oldText, text) -> suggestTowns(box, text));
+		}
 		
 		//event handling for buttons
 		displayTownsButton.setOnAction(event -> {
@@ -290,7 +316,6 @@ public class FXMainPane extends VBox {
 		findConnectionButton.setOnAction(event -> {
 			Town town1;
 			Town town2;
-			String result = "";
 			try {
 				town1 = graph.getTown(sourceConnectionComboBox.getValue().toString());
 				town2 = graph.getTown(destConnectionComboBox.getValue().toString());
@@ -298,28 +323,37 @@ public class FXMainPane extends VBox {
 				town1 = town2 = null;
 			}
 			findConnectionTextArea.setText("");
-			ArrayList<String> path = graph.getPath(town1.getName(), town2.getName());
+			if (town1 == null || town2 == null) {
+				findConnectionTextArea.appendText("Select two towns");
+				return;
+			}
 			if (town1.equals(town2)){
 				findConnectionTextArea.appendText("Select two different towns");
+				return;
 			}
-			else if (path.isEmpty()){
-				findConnectionTextArea.appendText("You can't get there from here");
-			}
-			else {
-				for (String s : path){
-					result+=s+"\n";
-					//findConnectionTextArea.appendText(s);
-					findConnectionTextArea.setText(result);
+			String from = town1.getName();
+			String to = town2.getName();
+			//search off the UI thread so a slow route doesn't freeze the window
+			Task<ArrayList<String>> search = new Task<ArrayList<String>>() {
+				@Override
+				protected ArrayList<String> call() {
+					return graph.getPath(from, to);
 				}
-			}
-		});
-		readFileButton.setOnAction(event -> {
-			try {
-				readFile();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+			};
+			search.setOnSucceeded(done -> {
+				ArrayList<String> path = search.getValue();
+				if (path.isEmpty()){
+					findConnectionTextArea.appendText("You can't get there from here");
+				}
+				else {
+					findConnectionTextArea.setText(String.join("\n", path) + "\n");
+				}
+			});
+			search.setOnCancelled(done -> findConnectionTextArea.setText("Search cancelled"));
+			search.setOnFailed(done -> findConnectionTextArea.setText("Search failed: " + search.getException()));
+			runInBackground(search, "Finding connection...", () -> { });
 		});
+		readFileButton.setOnAction(event -> readFile());
 		exitButton.setOnAction(event -> {
        	 	Platform.exit();
        	 	System.exit(0);
@@ -328,40 +362,96 @@ public class FXMainPane extends VBox {
 	}
 	//update the ComboBoxes that contain the town names
 	public void updateComboBoxes() {
-		ArrayList<String> townList = graph.allTowns();
-		for (String town : townList){
-			addDestTownComboBox.getItems().clear();
-			sourceConnectionComboBox.getItems().clear();
-			destConnectionComboBox.getItems().clear();
-			addSourceTownComboBox.getItems().clear();
+		for (ComboBox<String> box : Arrays.asList(addSourceTownComboBox, addDestTownComboBox, sourceConnectionComboBox, destConnectionComboBox)) {
+			suggestTowns(box, box.getEditor().getText());
 		}
-		for (String town : townList){
-			addDestTownComboBox.getItems().addAll(town);
-			sourceConnectionComboBox.getItems().addAll(town);
-			destConnectionComboBox.getItems().addAll(town);
-			addSourceTownComboBox.getItems().addAll(town); 
-		}	
 	}
 	
-	//Select the file to read the Towns and Roads from
+	//fill a town ComboBox with the first towns whose names start with the typed text
+	private void suggestTowns(ComboBox<String> box, String prefix) {
+		if (suggesting) {
+			return;
+		}
+		suggesting = true;
+		try {
+			box.getItems().setAll(graph.townsStartingWith(prefix == null ? "" : prefix, SUGGESTIONS));
+		}
+		finally {
+			suggesting = false;
+		}
+	}
+	
+	//Select the file to read the Towns and Roads from, and load it in the background
 	public void readFile() {
 		FileChooser chooser = new FileChooser();
-		File selectedFile = null;
-		try {
-			selectedFile = chooser.showOpenDialog(null);
-			if(selectedFile != null) {
-				graph.populateTownGraph(selectedFile);
-				}
-			updateComboBoxes();
-		} catch (FileNotFoundException e) {
-			alert.setTitle("File Error");
-			alert.setHeaderText("File not found");
-			alert.showAndWait();
+		File selectedFile = chooser.showOpenDialog(null);
+		if(selectedFile == null) {
+			return;
 		}
-		catch (IOException e) {
+		//Cancel can land after the loader's last interrupt check, while the roads are
+		//being added; the task then reports CANCELLED but the file is loaded anyway
+		AtomicBoolean loaded = new AtomicBoolean();
+		Task<Void> load = new Task<Void>() {
+			@Override
+			protected Void call() throws IOException {
+				graph.populateTownGraph(selectedFile, fraction -> updateProgress(fraction, 1));
+				loaded.set(true);
+				return null;
+			}
+		};
+		load.setOnCancelled(done -> statusLabel.setText("Load cancelled"));
+		load.setOnFailed(done -> {
+			Throwable e = load.getException();
+			if (e instanceof InterruptedIOException) {
+				statusLabel.setText("Load cancelled");
+				return;
+			}
+			statusLabel.setText("");
 			alert.setTitle("File Error");
-			alert.setHeaderText("Input error");
+			alert.setHeaderText(e instanceof FileNotFoundException ? "File not found" : "Input error");
 			alert.showAndWait();
+		});
+		runInBackground(load, "Loading " + selectedFile.getName() + "...", () -> {
+			updateComboBoxes();
+			if (loaded.get()) {
+				statusLabel.setText("Loaded " + selectedFile.getName());
+			}
+		});
+	}
+	
+	//run a task on a worker thread. Everything that reads or changes the graph is
+	//disabled until the worker has really finished, even if the task is cancelled
+	//first, because TownGraphManager may only be used by one thread at a time.
+	//whenDone then runs on the JavaFX thread, however the task ended.
+	private void runInBackground(Task<?> task, String status, Runnable whenDone) {
+		setBusy(true);
+		statusLabel.setText(status);
+		progressBar.progressProperty().bind(task.progressProperty());
+		cancelButton.setOnAction(event -> task.cancel());
+		Thread worker = new Thread(() -> {
+			try {
+				task.run();
+			}
+			finally {
+				Platform.runLater(() -> {
+					progressBar.progressProperty().unbind();
+					setBusy(false);
+					whenDone.run();
+				});
+			}
+		}, "FXMainPane worker");
+		worker.setDaemon(true);
+		worker.start();
+	}
+	
+	//turn the controls that use the graph off while a background task runs
+	private void setBusy(boolean busy) {
+		for (Node control : Arrays.asList(addTownButton, addRoadButton, findConnectionButton, readFileButton, displayTownsButton, displayRoadsButton,
+				addSourceTownComboBox, addDestTownComboBox, sourceConnectionComboBox, destConnectionComboBox)) {
+			control.setDisable(busy);
 		}
+		cancelButton.setDisable(!busy);
+		progressBar.setVisible(busy);
 	}
 }
+
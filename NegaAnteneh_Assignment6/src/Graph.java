@@ -1,15 +1,42 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 public class Graph implements GraphInterface<Town,Road>{
 
-	private ArrayList<String> shortPath = new ArrayList<>();
-	private Set<Road> roads = new HashSet<>();
+	/**
+	 * The distance held by id-indexed search arrays for towns not reached
+	 */
+	static final int UNREACHED = Integer.MAX_VALUE;
+	
+	/**
+	 * The memory, in bytes, cached shortest path trees may hold unless set otherwise
+	 */
+	public static final long DEFAULT_PATH_CACHE_BUDGET = 64L << 20;
+	
+	private Set<Road> roads = roadSet();
 	private Set<Town> towns = new HashSet<>();
-	private Town B;
+	private TownIndex index = new TownIndex();
+	private ArrayList<ArrayList<Road>> adjacency = new ArrayList<>();
+	private TreeSet<String> townNames = new TreeSet<>();
+	private TreeMap<String, Integer> roadNames = new TreeMap<>();
+	private long version;
+	private int maxWeight;
+	private QueueKind queueKind = QueueKind.BINARY_HEAP;
+	private PathTreeCache pathTrees = new PathTreeCache(DEFAULT_PATH_CACHE_BUDGET);
+	private SingleSourcePaths lastSearch;
 	
 	/**
      * this method Returns an edge connecting source vertex to target vertex if such
@@ -23,11 +50,24 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public Road getEdge(Town sourceVertex, Town destinationVertex) 
 	{
-		if(sourceVertex == null || destinationVertex == null)
+		int source;
+		source = index.getId(sourceVertex);
+		
+		int destination;
+		destination = index.getId(destinationVertex);
+		
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING)
 		{
 			return null;
 		}
-		return roads.stream().filter(road -> road.contains(sourceVertex) && road.contains(destinationVertex)).findAny().orElse(null);
+		for(Road r : adjacency.get(source))
+		{
+			if(r.getOppositeId(source) == destination)
+			{
+				return r;
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -39,7 +79,8 @@ public class Graph implements GraphInterface<Town,Road>{
      * @param description description for edge
      * @return The newly created edge if added to the graph, otherwise null.
      * @throws IllegalArgumentException if source or target vertices are not
-     * found in the graph.
+     * found in the graph, or the weight is negative, which the searches cannot
+     * route over.
      * @throws NullPointerException if any of the specified vertices is null.
      */
 	@Override
@@ -49,13 +90,26 @@ public class Graph implements GraphInterface<Town,Road>{
 		{
 			throw new NullPointerException();
 		}
-		if(!containsVertex(sourceVertex) || !containsVertex(destinationVertex))
+		int source;
+		source = index.getId(sourceVertex);
+		
+		int destination;
+		destination = index.getId(destinationVertex);
+		
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING || weight < 0)
 		{
 			throw new IllegalArgumentException();
 		}
 		Road road;
-		road = new Road(sourceVertex, destinationVertex, weight, description);
+		road = new Road(sourceVertex, destinationVertex, weight, addRoadName(description), source, destination);
 		roads.add(road);
+		maxWeight = Math.max(maxWeight, weight);
+		adjacency.get(source).add(road);
+		if(destination != source)
+		{
+			adjacency.get(destination).add(road);
+		}
+		version++;
 		return road;
 	}
 
@@ -75,15 +129,19 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public boolean addVertex(Town v) throws NullPointerException
 	{
-		if(!towns.contains(v))
-		{
-			towns.add(v);
-			return true;
-		}
 		if(v == null)
 		{
 			throw new NullPointerException();
 		}
+		if(index.getId(v) == TownIndex.MISSING)
+		{
+			index.add(v);
+			towns.add(v);
+			townNames.add(v.getName());
+			adjacency.add(new ArrayList<>());
+			version++;
+			return true;
+		}
 		return false;
 	}
 
@@ -100,14 +158,7 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public boolean containsEdge(Town sourceVertex, Town destinationVertex) 
 	{
-		for(Road roads : roads)
-		{
-			if(roads.contains(sourceVertex) && roads.contains(destinationVertex))
-			{
-				return true;
-			}
-		}
-		return false;
+		return getEdge(sourceVertex, destinationVertex) != null;
 	}
 
 	/**
@@ -121,7 +172,7 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public boolean containsVertex(Town v) 
 	{
-		return towns.contains(v);
+		return index.getId(v) != TownIndex.MISSING;
 	}
 
 	/**
@@ -154,19 +205,16 @@ public class Graph implements GraphInterface<Town,Road>{
 		{
 			throw new NullPointerException();
 		}
-		Set<Road> roadS = new HashSet<>();
-		for(Road r : roads)
-		{
-			if(r.contains(vertex))
-			{
-				roadS.add(r);
-			}
-		}
-		if(roadS.isEmpty())
+		int id;
+		id = index.getId(vertex);
+		if(id == TownIndex.MISSING)
 		{
 			throw new IllegalArgumentException();
 		}
-		return roadS;
+		Set<Road> touching;
+		touching = roadSet();
+		touching.addAll(adjacency.get(id));
+		return touching;
 	}
 
 	 /**
@@ -181,16 +229,34 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) 
 	{
+		int source;
+		source = index.getId(sourceVertex);
+		
+		int destination;
+		destination = index.getId(destinationVertex);
+		
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING)
+		{
+			return null;
+		}
 		Road road;
 		road = null;
-		for(Road r : roads)
+		for(Road r : adjacency.get(source))
 		{
-			if(r.contains(destinationVertex) && r.contains(sourceVertex) && (weight > -1) && description != null)			{
+			if(r.getOppositeId(source) == destination && (weight > -1) && description != null)
+			{
 				road = r;
 			}
 		}
-		if(roads.remove(road))
+		if(road != null && roads.remove(road))
 		{
+			indexRoadName(road.getName(), -1);
+			unlink(adjacency.get(source), road);
+			if(destination != source)
+			{
+				unlink(adjacency.get(destination), road);
+			}
+			version++;
 			return road;
 		}
 		return null;
@@ -211,10 +277,27 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public boolean removeVertex(Town v) 
 	{
-		if(v == null)
+		int id;
+		id = index.getId(v);
+		if(id == TownIndex.MISSING)
 		{
 			return false;
 		}
+		for(Road r : adjacency.get(id))
+		{
+			roads.remove(r);
+			indexRoadName(r.getName(), -1);
+			int other;
+			other = r.getOppositeId(id);
+			if(other != id)
+			{
+				unlink(adjacency.get(other), r);
+			}
+		}
+		adjacency.set(id, null);
+		index.remove(id);
+		townNames.remove(v.getName());
+		version++;
 		return towns.remove(v);
 	}
 
@@ -242,191 +325,760 @@ public class Graph implements GraphInterface<Town,Road>{
 	@Override
 	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) 
 	{
-		B = destinationVertex;
-
-		dijkstraShortestPath(sourceVertex);
-		ArrayList<Road> rPath;
-		rPath = new ArrayList<>();
-		
-		boolean aSource;
-		aSource = roads.stream().anyMatch(r -> r.contains(sourceVertex));
+		return describe(shortestRoute(sourceVertex, destinationVertex));
+	}
+	
+	/**
+	 * this method finds the shortest route from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if there is no route
+	 */
+	ArrayList<Road> shortestRoute(Town sourceVertex, Town destinationVertex)
+	{
+		int source;
+		source = index.getId(sourceVertex);
 		
-		boolean aDest;
-		aDest = roads.stream().anyMatch(r -> r.contains(destinationVertex));
+		int destination;
+		destination = index.getId(destinationVertex);
 		
-		if(!aSource || !aDest)
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING || source == destination)
 		{
 			return new ArrayList<>();
 		}
 		
-		for(int n = 0; n < shortPath.size() - 1; n++)
+		ShortestPathTree tree;
+		tree = pathTree(source);
+		
+		boolean reached;
+		reached = tree.settle(destination);
+		pathTrees.put(tree);
+		
+		if(!reached)
 		{
-			Town source;
-			source = new Town(shortPath.get(n));
-			
-			Town destination;
-			destination = new Town(shortPath.get(n+1));
-			
-			Road road = getEdge(source, destination);
-			rPath.add(new Road(source, destination, road.getWeight(), road.getName()));
+			return new ArrayList<>();
 		}
-		shortPath.clear();
-		
-		return rPath.stream().map(Road :: toString).collect(Collectors.toCollection(ArrayList::new));
+		return traceRoute(source, destination, tree.previous());
 	}
-
+	
 	/**
-     * Dijkstra's Shortest Path Method.  Internal structures are built which
-     * hold the ability to retrieve the path, shortest distance from the
-     * sourceVertex to all the other vertices in the graph, etc.
-     * @param sourceVertex the vertex to find shortest path from
-     */
-	@Override
-	public void dijkstraShortestPath(Town sourceVertex) 
+	 * this method finds the shortest paths from the sourceVertex to each of several
+	 * destinations with a single search, which stops once every destination has been
+	 * settled. A destination that cannot be reached is never settled, so in that case
+	 * the search explores every town reachable from the source.
+	 * @param sourceVertex starting vertex
+	 * @param destinations the ending vertices
+	 * @return a map from every destination to the strings describing its path, in the
+	 * same format as shortestPath. Unreachable destinations map to an empty list.
+	 */
+	public Map<Town, ArrayList<String>> shortestPaths(Town sourceVertex, Collection<Town> destinations)
 	{
-		List <Town> vert;
+		int source;
+		source = index.getId(sourceVertex);
 		
-		vert = new ArrayList<>(towns);
+		int[] targets;
+		targets = destinations.stream().mapToInt(index :: getId).filter(id -> id != TownIndex.MISSING).toArray();
 		
-		int[][] adjMatrix;
-		
-		adjMatrix = new int[towns.size()][towns.size()];
-		
-		for(int n = 0; n < adjMatrix.length; n++)
+		int[] dist = new int[index.bound()];
+		Road[] prev = new Road[index.bound()];
+		Arrays.fill(dist, UNREACHED);
+		if(targets.length > 0)
 		{
-			for(int k = 0; k < adjMatrix[n].length; k++)
-			{
-				if(n == k || !containsEdge(vert.get(n), vert.get(k)))
-				{
-					adjMatrix[n][k] = 0;
-				}
-				else
-				{
-					int dist;
-					
-					dist = getEdge(vert.get(n), vert.get(k)).getWeight();
-					
-					adjMatrix[n][k] = adjMatrix[k][n] = dist;
-				}
-			}
+			search(source, targets, dist, prev);
 		}
 		
-		int sTown;
-		
-		sTown = 0;
-		
-		for(Town t : vert)
+		Map<Town, ArrayList<String>> paths;
+		paths = new HashMap<>();
+		for(Town destination : destinations)
 		{
-			if(!t.equals(sourceVertex))
+			int id = index.getId(destination);
+			if(id != TownIndex.MISSING && prev[id] != null)
 			{
-				
-				sTown++;
-				
+				paths.put(destination, describe(traceRoute(source, id, prev)));
 			}
 			else
 			{
-				break;
+				paths.put(destination, new ArrayList<>());
 			}
 		}
+		return paths;
+	}
+	
+	/**
+	 * this method finds the shortest path from the sourceVertex to the destinationVertex
+	 * by searching forward from the source and backward from the destination at the
+	 * same time. Roads are undirected, so the two searches meet in the middle after
+	 * exploring roughly half the towns a one-sided search would.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An arraylist of Strings that describe the path from sourceVertex
+	 * to destinationVertex, in the same format as shortestPath
+	 */
+	public ArrayList<String> bidirectionalShortestPath(Town sourceVertex, Town destinationVertex)
+	{
+		return describe(bidirectionalRoute(sourceVertex, destinationVertex));
+	}
+	
+	/**
+	 * this method finds the shortest route from the sourceVertex to the destinationVertex
+	 * with a bidirectional search
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if there is no route
+	 */
+	ArrayList<Road> bidirectionalRoute(Town sourceVertex, Town destinationVertex)
+	{
+		int source;
+		source = index.getId(sourceVertex);
+		
+		int destination;
+		destination = index.getId(destinationVertex);
+		
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING || source == destination)
+		{
+			return new ArrayList<>();
+		}
+		
+		int n = index.bound();
+		int[] fDist = new int[n];
+		int[] bDist = new int[n];
+		Road[] fPrev = new Road[n];
+		Road[] bPrev = new Road[n];
+		boolean[] fSettled = new boolean[n];
+		boolean[] bSettled = new boolean[n];
+		IntPriorityQueue fQueue = newQueue();
+		IntPriorityQueue bQueue = newQueue();
+		Arrays.fill(fDist, UNREACHED);
+		Arrays.fill(bDist, UNREACHED);
 		
-		int eTown;
+		fDist[source] = 0;
+		bDist[destination] = 0;
+		fQueue.add(0, source);
+		bQueue.add(0, destination);
 		
-		eTown=0;
+		long best;
+		best = Long.MAX_VALUE;
 		
-		for(Town t : vert)
+		int meet;
+		meet = TownIndex.MISSING;
+		
+		while(!fQueue.isEmpty() && !bQueue.isEmpty())
 		{
-			if(!t.equals(B))
+			if((long) fQueue.peekPriority() + bQueue.peekPriority() >= best)
 			{
-				eTown++;
+				break;
+			}
+			
+			int touched;
+			if(fQueue.size() <= bQueue.size())
+			{
+				touched = settleNext(fQueue, fSettled, fDist, fPrev, bDist);
 			}
 			else
 			{
-				break;
+				touched = settleNext(bQueue, bSettled, bDist, bPrev, fDist);
+			}
+			
+			if(touched != TownIndex.MISSING && (long) fDist[touched] + bDist[touched] < best)
+			{
+				best = (long) fDist[touched] + bDist[touched];
+				meet = touched;
 			}
 		}
-		int nTown;
-		nTown = adjMatrix[0].length;
 		
-		int[] sDist;
-		sDist = new int[nTown];
+		if(meet == TownIndex.MISSING)
+		{
+			return new ArrayList<>();
+		}
 		
-		boolean[] visited;
-		visited = new boolean[nTown];
+		ArrayList<Road> route;
+		route = traceRoute(source, meet, fPrev);
 		
-		for(int t = 0; t < nTown; t++)
+		ArrayList<Road> back;
+		back = traceRoute(destination, meet, bPrev);
+		for(int k = back.size() - 1; k >= 0; k--)
 		{
-			sDist[t] = Integer.MAX_VALUE;
-			
-			visited[t] = false;
+			Road r = back.get(k);
+			route.add(new Road(r.getDestination(), r.getSource(), r.getWeight(), r.getName(), TownIndex.MISSING, TownIndex.MISSING));
 		}
+		return route;
+	}
+	
+	/**
+	 * this method settles the nearest town in one direction of a bidirectional search
+	 * and relaxes the roads touching it
+	 * @param queue the towns waiting to be settled in this direction
+	 * @param settled the towns already settled in this direction
+	 * @param dist the best known distances in this direction
+	 * @param prev the road used to reach each town in this direction
+	 * @param otherDist the best known distances of the opposite direction
+	 * @return the labeled town with the shortest combined distance through it
+	 * found in this step, or MISSING if no town is labeled by both directions
+	 */
+	private int settleNext(IntPriorityQueue queue, boolean[] settled, int[] dist, Road[] prev, int[] otherDist)
+	{
+		int town;
+		town = queue.poll();
+		if(settled[town])
+		{
+			return TownIndex.MISSING;
+		}
+		settled[town] = true;
 		
-		sDist[sTown] = 0;
-		
-		int[] minimumPathLength = new int [nTown];
+		int mDist;
+		mDist = dist[town];
 		
-		minimumPathLength[sTown] = -1;
+		int touched;
+		touched = otherDist[town] != UNREACHED ? town : TownIndex.MISSING;
 		
-		for(int n = 1; n < nTown; n++)
+		for(Road r : adjacency.get(town))
 		{
-			int nearTown;
-			nearTown = -1;
+			int next;
+			next = r.getOppositeId(town);
 			
-			int mDist;
-			mDist = Integer.MAX_VALUE;
+			int nDist;
+			nDist = mDist + r.getWeight();
 			
-			for(int tI = 0; tI < nTown; tI++)
-			{
-				if(!visited[tI] && sDist[tI] < mDist)
-				{
-					nearTown = tI;
-					
-					mDist = sDist[tI];
-				}
-			}
-			visited[nearTown] = true;
-			for(int tI = 0; tI < nTown; tI++)
+			if(nDist < dist[next])
 			{
-				int rDist = adjMatrix[nearTown][tI];
+				dist[next] = nDist;
+				prev[next] = r;
+				queue.add(nDist, next);
 				
-				if(rDist > 0 && ((mDist + rDist) < sDist[tI]))
+				if(otherDist[next] != UNREACHED && (touched == TownIndex.MISSING || (long) nDist + otherDist[next] < (long) dist[touched] + otherDist[touched]))
 				{
-					minimumPathLength[tI] = nearTown;
-					
-					sDist[tI] = mDist + rDist;
+					touched = next;
 				}
 			}
 		}
+		return touched;
+	}
+	
+	/**
+	 * this method walks the search tree back from a town to the town the search
+	 * started at and returns the roads in travel order, each one facing from the
+	 * start towards the given town
+	 * @param root the ID of the town the search started at
+	 * @param town the ID of the town to walk back from
+	 * @param prev the road used to reach each town, indexed by ID
+	 * @return the roads leading from root to town
+	 */
+	static ArrayList<Road> traceRoute(int root, int town, Road[] prev)
+	{
+		ArrayList<Road> route;
+		route = new ArrayList<>();
+		
+		int current;
+		current = town;
+		while(current != root)
+		{
+			Road road;
+			road = prev[current];
+			
+			int from;
+			from = road.getOppositeId(current);
+			
+			route.add(new Road(road.getTownById(from), road.getTownById(current), road.getWeight(), road.getName(), from, current));
+			current = from;
+		}
+		Collections.reverse(route);
 		
-		cShortPath(eTown, minimumPathLength);
+		return route;
 	}
 	
 	/**
-	 * this method computes the shortest paths of towns and add into arraylist
-	 * @param sourceVertex index of town
-	 * @param minPathLengths array with towns short distances
+	 * this method turns a route into the strings shortestPath returns
+	 * @param route the roads of the route in travel order
+	 * @return one string per road
 	 */
-	private void cShortPath(int sourceVertex, int[] minimumPathLength)
+	static ArrayList<String> describe(ArrayList<Road> route)
+	{
+		return route.stream().map(Road :: toString).collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	/**
+     * Dijkstra's Shortest Path Method.  Internal structures are built which
+     * hold the ability to retrieve the path, shortest distance from the
+     * sourceVertex to all the other vertices in the graph, etc.
+     * The search pulls the nearest unsettled town from a priority queue and
+     * relaxes only the roads touching it, so it runs in O((V + E) log V)
+     * without building an adjacency matrix. The tree is cached per source town
+     * until the graph changes, so asking again from the same town is free.
+     * @param sourceVertex the vertex to find shortest path from
+     */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex) 
 	{
-		if(sourceVertex == -1)
+		lastSearch = shortestPathsFrom(sourceVertex);
+	}
+	
+	/**
+	 * this method runs Dijkstra's search from the sourceVertex, like
+	 * dijkstraShortestPath, and returns its result so that one search answers the
+	 * distance and path to any number of destinations
+	 * @param sourceVertex the vertex to find shortest paths from
+	 * @return the result of the search; it reaches no town if the sourceVertex is
+	 * not in the graph
+	 */
+	public SingleSourcePaths shortestPathsFrom(Town sourceVertex)
+	{
+		int source;
+		source = index.getId(sourceVertex);
+		if(source == TownIndex.MISSING)
 		{
-			return;
+			return new SingleSourcePaths(this, sourceVertex, null);
 		}
 		
-		cShortPath(minimumPathLength[sourceVertex], minimumPathLength);
+		ShortestPathTree tree;
+		tree = pathTree(source);
+		tree.settleAll();
 		
-		int tI;
+		SingleSourcePaths paths;
+		paths = new SingleSourcePaths(this, sourceVertex, tree);
+		pathTrees.put(tree);
+		return paths;
+	}
+	
+	/**
+	 * this method returns the result of the last call to dijkstraShortestPath
+	 * @return the result, or null if dijkstraShortestPath has not been called
+	 */
+	public SingleSourcePaths getLastSearch()
+	{
+		return lastSearch;
+	}
+	
+	/**
+	 * this method sets how much memory the shortest path trees kept by shortestPath
+	 * and dijkstraShortestPath may hold. The least recently used trees are dropped
+	 * first once the budget is exceeded.
+	 * @param bytes the budget in bytes; 0 turns the cache off
+	 */
+	public void setPathCacheBudget(long bytes)
+	{
+		pathTrees.setBudget(bytes);
+	}
+	
+	/**
+	 * this method returns the number of shortest path trees currently cached
+	 * @return the number of cached trees
+	 */
+	int cachedPathTrees()
+	{
+		return pathTrees.size(version);
+	}
+	
+	/**
+	 * this method selects the priority queue the shortest-path searches run on.
+	 * Every kind finds the same distances; DIAL and RADIX_HEAP avoid comparisons
+	 * entirely and suit the small whole-mile road weights.
+	 * @param kind the kind of queue to use from now on
+	 * @throws NullPointerException if kind is null
+	 */
+	public void setQueueKind(QueueKind kind)
+	{
+		if(kind == null)
+		{
+			throw new NullPointerException();
+		}
+		queueKind = kind;
+	}
+	
+	/**
+	 * this method returns the priority queue the shortest-path searches run on
+	 * @return the kind of queue in use
+	 */
+	public QueueKind getQueueKind()
+	{
+		return queueKind;
+	}
+	
+	/**
+	 * this method makes an empty queue of the selected kind, sized for the longest
+	 * road added so far
+	 * @return the queue
+	 */
+	IntPriorityQueue newQueue()
+	{
+		return queueKind.create(maxWeight);
+	}
+	
+	/**
+	 * this method returns the version of the graph, which goes up on every change
+	 * to its towns or roads
+	 * @return the version
+	 */
+	long version()
+	{
+		return version;
+	}
+	
+	/**
+	 * this method returns the cached shortest path tree of a town, starting a new
+	 * one if none was kept for the current version of the graph
+	 * @param source the ID of the source town
+	 * @return the tree
+	 */
+	private ShortestPathTree pathTree(int source)
+	{
+		ShortestPathTree tree;
+		tree = pathTrees.get(source, version);
+		if(tree == null)
+		{
+			tree = new ShortestPathTree(this, source);
+		}
+		return tree;
+	}
+	
+	/**
+	 * this method Returns the shortest distance from the sourceVertex to every town
+	 * it can reach. Unlike dijkstraShortestPath it leaves the graph's own search
+	 * structures untouched.
+	 * @param sourceVertex the vertex to find shortest distances from
+	 * @return a map from every reachable town to its distance, empty if the
+	 * sourceVertex is not in the graph
+	 */
+	public Map<Town, Integer> shortestDistances(Town sourceVertex)
+	{
+		int[] dist;
+		dist = distancesFrom(index.getId(sourceVertex));
 		
-		tI = 0;
+		Map<Town, Integer> reached;
+		reached = new HashMap<>();
+		for(int id = 0; id < dist.length; id++)
+		{
+			if(dist[id] != UNREACHED)
+			{
+				reached.put(index.getTown(id), dist[id]);
+			}
+		}
+		return reached;
+	}
+	
+	/**
+	 * this method takes a read-only compressed sparse row snapshot of the graph for
+	 * serving route queries. The graph itself stays editable; changes made after
+	 * the call are not seen by the snapshot.
+	 * @return the snapshot
+	 */
+	public CompressedGraph freeze()
+	{
+		return new CompressedGraph(this);
+	}
 	
-		for(Town t : towns)
+	/**
+	 * this method takes a road out of a town's list. It compares by identity, since
+	 * List.remove would take out the first road joining the same two towns.
+	 * @param touching the roads touching a town
+	 * @param road the road to take out
+	 */
+	private static void unlink(ArrayList<Road> touching, Road road)
+	{
+		for(int k = touching.size() - 1; k >= 0; k--)
 		{
-			if(tI == sourceVertex)
+			if(touching.get(k) == road)
 			{
-				shortPath.add(t.getName());
+				touching.remove(k);
+				return;
 			}
-			tI++;
 		}
 	}
-}
 
+	/**
+	 * this method makes an empty set that tells roads apart by identity, so roads
+	 * that join the same two towns, which are equal Roads, are all kept
+	 * @return the set
+	 */
+	static Set<Road> roadSet()
+	{
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	/**
+	 * this method returns the town stored under a name
+	 * @param name the town's name
+	 * @return the town, or null if the graph has no town by that name
+	 */
+	public Town getTown(String name)
+	{
+		return index.getTown(name);
+	}
+
+	/**
+	 * this method returns the names of the towns in alphabetical order. The set is a
+	 * read-only view that the graph keeps sorted as towns come and go, so listing it
+	 * costs O(n) and subSet, headSet and tailSet give a range without copying.
+	 * @return a sorted view of the town names
+	 */
+	public NavigableSet<String> sortedTownNames()
+	{
+		return Collections.unmodifiableNavigableSet(townNames);
+	}
 
+	/**
+	 * this method returns the names of the roads in sorted order, each with the number
+	 * of roads that carry it. Like sortedTownNames it is a read-only view kept sorted
+	 * by the graph. Roads without a name are left out.
+	 * @return a sorted view from road name to the number of roads with that name
+	 */
+	public NavigableMap<String, Integer> sortedRoadNames()
+	{
+		return Collections.unmodifiableNavigableMap(roadNames);
+	}
+
+	/**
+	 * this method counts a new road's name into the sorted road names and returns the
+	 * copy of the name the graph already holds, so every road with one name shares a
+	 * single String. The name is dropped again with the last road that has it.
+	 * @param name the road's name
+	 * @return the graph's copy of the name, or name itself if it is new or null
+	 */
+	private String addRoadName(String name)
+	{
+		if(name == null)
+		{
+			return null;
+		}
+		Map.Entry<String, Integer> known;
+		known = roadNames.floorEntry(name);
+		if(known != null && known.getKey().equals(name))
+		{
+			roadNames.put(known.getKey(), known.getValue() + 1);
+			return known.getKey();
+		}
+		roadNames.put(name, 1);
+		return name;
+	}
+
+	/**
+	 * this method counts a road name in or out of the sorted road names
+	 * @param name the road's name
+	 * @param change 1 for a road added, -1 for one removed
+	 */
+	private void indexRoadName(String name, int change)
+	{
+		if(name != null)
+		{
+			roadNames.merge(name, change, (count, delta) -> count + delta == 0 ? null : count + delta);
+		}
+	}
+
+	/**
+	 * this method adds a batch of roads, first adding any of their towns the graph
+	 * does not have yet. It does what addVertex and addEdge would for each road but
+	 * looks every name up only once and counts as a single change to the graph.
+	 * @param from the name of each road's first town
+	 * @param to the name of each road's second town
+	 * @param weights the length of each road
+	 * @param names the name of each road
+	 * @param count the number of roads to add from the arrays
+	 * @throws IllegalArgumentException if a weight is negative; nothing is added then
+	 */
+	void addRoads(String[] from, String[] to, int[] weights, String[] names, int count)
+	{
+		for(int k = 0; k < count; k++)
+		{
+			if(weights[k] < 0)
+			{
+				throw new IllegalArgumentException();
+			}
+		}
+		for(int k = 0; k < count; k++)
+		{
+			int source = addTownNamed(from[k]);
+			int destination = addTownNamed(to[k]);
+
+			Road road = new Road(index.getTown(source), index.getTown(destination), weights[k], addRoadName(names[k]), source, destination);
+			roads.add(road);
+			maxWeight = Math.max(maxWeight, weights[k]);
+			adjacency.get(source).add(road);
+			if(destination != source)
+			{
+				adjacency.get(destination).add(road);
+			}
+		}
+		version++;
+	}
+
+	/**
+	 * this method returns the ID of the town with a name, adding the town if needed
+	 * @param name the town's name
+	 * @return the town's ID
+	 */
+	private int addTownNamed(String name)
+	{
+		int id = index.getId(name);
+		if(id == TownIndex.MISSING)
+		{
+			Town town = new Town(name);
+			id = index.add(town);
+			towns.add(town);
+			townNames.add(name);
+			adjacency.add(new ArrayList<>());
+		}
+		return id;
+	}
+
+	/**
+	 * this method returns the shortest distance from a town to every town, indexed
+	 * by ID, without touching the graph's own search structures
+	 * @param source the ID of the town to search from
+	 * @return the distances, UNREACHED for towns with no route; all UNREACHED if
+	 * source is MISSING
+	 */
+	int[] distancesFrom(int source)
+	{
+		int[] dist;
+		dist = new int[index.bound()];
+		Arrays.fill(dist, UNREACHED);
+		search(source, null, dist, new Road[dist.length]);
+		return dist;
+	}
+	
+	/**
+	 * this method returns the ID of a town
+	 * @param vertex the town
+	 * @return its ID, or TownIndex.MISSING if the town is not in the graph
+	 */
+	int idOf(Town vertex)
+	{
+		return index.getId(vertex);
+	}
+	
+	/**
+	 * this method returns the town with an ID
+	 * @param id the ID
+	 * @return the town, or null if no town has that ID
+	 */
+	Town townAt(int id)
+	{
+		return index.getTown(id);
+	}
+	
+	/**
+	 * this method returns the length an array needs to be indexed by town ID
+	 * @return one more than the largest ID handed out
+	 */
+	int idBound()
+	{
+		return index.bound();
+	}
+	
+	/**
+	 * this method returns the roads touching a town without copying them, or null
+	 * if no town has the ID. Callers must not modify the list.
+	 * @param id the ID of the town whose roads are wanted
+	 * @return the live list of roads touching the town
+	 */
+	ArrayList<Road> touchingRoads(int id)
+	{
+		return id < 0 || id >= adjacency.size() ? null : adjacency.get(id);
+	}
+	
+	/**
+	 * this method runs Dijkstra's search from the source town, stopping as soon
+	 * as every target town is settled since their distances can no longer improve.
+	 * @param source the ID of the town to search from
+	 * @param targets the IDs of the towns to stop after, or null to settle every
+	 * reachable town
+	 * @param distances receives the best known distance of every labeled town; must
+	 * come in filled with UNREACHED
+	 * @param previous receives the road used to reach every labeled town
+	 */
+	private void search(int source, int[] targets, int[] distances, Road[] previous)
+	{
+		search(source, targets, distances, previous, newQueue(), adjacency :: get);
+	}
+	
+	/**
+	 * this method runs Dijkstra's search over the roads of any graph numbered by town
+	 * ID, so that ConcurrentGraph runs the same search over its own road lists. Roads
+	 * leading to an ID past the end of distances are skipped, and so are towns whose
+	 * roads come back null; ConcurrentGraph meets both when other threads add or
+	 * remove towns during the search.
+	 * @param source the ID of the town to search from
+	 * @param targets the IDs of the towns to stop after, or null to settle every
+	 * reachable town; each must be below distances.length
+	 * @param distances receives the best known distance of every labeled town; must
+	 * come in filled with UNREACHED
+	 * @param previous receives the road used to reach every labeled town
+	 * @param queue an empty queue to search with
+	 * @param roads gives the roads touching a town, by ID
+	 */
+	static void search(int source, int[] targets, int[] distances, Road[] previous, IntPriorityQueue queue, IntFunction<? extends Iterable<Road>> roads)
+	{
+		if(source == TownIndex.MISSING)
+		{
+			return;
+		}
+		
+		boolean[] settled;
+		settled = new boolean[distances.length];
+		
+		boolean[] wanted;
+		wanted = null;
+		
+		int remaining;
+		remaining = -1;
+		if(targets != null)
+		{
+			wanted = new boolean[distances.length];
+			remaining = 0;
+			for(int t : targets)
+			{
+				if(!wanted[t])
+				{
+					wanted[t] = true;
+					remaining++;
+				}
+			}
+		}
+		
+		distances[source] = 0;
+		queue.add(0, source);
+		
+		while(!queue.isEmpty())
+		{
+			int mDist;
+			mDist = queue.peekPriority();
+			
+			int town;
+			town = queue.poll();
+			
+			if(settled[town])
+			{
+				continue;
+			}
+			settled[town] = true;
+			if(wanted != null && wanted[town] && --remaining == 0)
+			{
+				break;
+			}
+			
+			Iterable<Road> touching;
+			touching = roads.apply(town);
+			if(touching == null)
+			{
+				continue;
+			}
+			
+			for(Road r : touching)
+			{
+				int next;
+				next = r.getOppositeId(town);
+				
+				int nDist;
+				nDist = mDist + r.getWeight();
+				
+				if(next < distances.length && nDist < distances[next])
+				{
+					distances[next] = nDist;
+					previous[next] = r;
+					queue.add(nDist, next);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,415 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saves a Graph to a binary file and loads it back, so a service can restart
+ * without parsing its road file again.
+ *
+ * Every number is a big-endian int. The file holds, in order:
+ * <ul>
+ * <li>a header: MAGIC, FORMAT_VERSION, the number of towns n, of roads m and of
+ * distinct road names r</li>
+ * <li>the town names: n+1 byte offsets, then the UTF-8 bytes of every name, padded
+ * to a multiple of 4 bytes. Town i is the i-th name.</li>
+ * <li>the road names, laid out the same way with r names</li>
+ * <li>the roads in compressed sparse row form: n+1 offsets, then m destination
+ * towns, m lengths and m road name numbers. The roads starting at town i are
+ * offsets[i] to offsets[i+1]-1. A road without a name has name number NO_NAME.</li>
+ * </ul>
+ * Each road is stored once, under its source town, so loading gives back every
+ * road facing the way it was added. Version 1 files, which had no NO_NAME, load
+ * unchanged.
+ *
+ * Saving writes a temporary file next to the target and renames it over the
+ * target only once it is complete, so a failed save leaves the old file intact.
+ *
+ * Loading maps each section of the file straight from its FileChannel and reads
+ * the arrays as IntBuffers, with no text parsing.
+ */
+public class GraphFile {
+
+	/**
+	 * The first int of every graph file
+	 */
+	public static final int MAGIC = 0x54475246;
+
+	/**
+	 * The version of the layout written by save
+	 */
+	public static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The name number of a road without a name
+	 */
+	public static final int NO_NAME = -1;
+
+	private static final int HEADER_INTS = 5;
+
+	private final FileChannel channel;
+	private long position;
+
+	/**
+	 * Constructor
+	 * @param channel the file to read
+	 * @param position where reading starts
+	 */
+	private GraphFile(FileChannel channel, long position)
+	{
+		this.channel = channel;
+		this.position = position;
+	}
+
+	/**
+	 * this method saves a graph to a file, replacing anything already there
+	 * @param graph the graph to save
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written; the file is unchanged in
+	 * that case
+	 */
+	public static void save(Graph graph, File file) throws IOException
+	{
+		int[] local;
+		local = new int[graph.idBound()];
+
+		ArrayList<Town> towns;
+		towns = new ArrayList<>();
+		for(int id = 0; id < graph.idBound(); id++)
+		{
+			if(graph.townAt(id) != null)
+			{
+				local[id] = towns.size();
+				towns.add(graph.townAt(id));
+			}
+		}
+
+		int[] offsets;
+		offsets = new int[towns.size() + 1];
+
+		int[] targets;
+		targets = new int[graph.edgeSet().size()];
+
+		int[] weights;
+		weights = new int[targets.length];
+
+		int[] names;
+		names = new int[targets.length];
+
+		Map<String, Integer> nameIds;
+		nameIds = new HashMap<>();
+
+		ArrayList<String> roadNames;
+		roadNames = new ArrayList<>();
+
+		int k;
+		k = 0;
+		for(int id = 0, v = 0; id < graph.idBound(); id++)
+		{
+			if(graph.townAt(id) == null)
+			{
+				continue;
+			}
+			offsets[v++] = k;
+			for(Road r : graph.touchingRoads(id))
+			{
+				// every road is listed at both ends; store it at its source only
+				if(r.getTownById(id) != r.getSource())
+				{
+					continue;
+				}
+				Integer name = r.getName() == null ? Integer.valueOf(NO_NAME) : nameIds.get(r.getName());
+				if(name == null)
+				{
+					name = roadNames.size();
+					nameIds.put(r.getName(), name);
+					roadNames.add(r.getName());
+				}
+				targets[k] = local[r.getOppositeId(id)];
+				weights[k] = r.getWeight();
+				names[k] = name;
+				k++;
+			}
+		}
+		offsets[towns.size()] = k;
+
+		File target;
+		target = file.getAbsoluteFile();
+
+		// the prefix is padded because createTempFile wants at least three characters
+		File temporary;
+		temporary = File.createTempFile("." + target.getName() + ".part", null, target.getParentFile());
+		try
+		{
+			write(temporary, towns, roadNames, offsets, targets, weights, names, k);
+			try
+			{
+				Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e)
+			{
+				Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(temporary.toPath());
+		}
+	}
+
+	/**
+	 * this method writes the sections of a graph file
+	 */
+	private static void write(File file, ArrayList<Town> towns, ArrayList<String> roadNames, int[] offsets, int[] targets, int[] weights, int[] names, int k) throws IOException
+	{
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(towns.size());
+			out.writeInt(k);
+			out.writeInt(roadNames.size());
+
+			ArrayList<String> townNames;
+			townNames = new ArrayList<>(towns.size());
+			for(Town t : towns)
+			{
+				townNames.add(t.getName());
+			}
+			writeNames(out, townNames);
+			writeNames(out, roadNames);
+
+			writeInts(out, offsets, offsets.length);
+			writeInts(out, targets, k);
+			writeInts(out, weights, k);
+			writeInts(out, names, k);
+		}
+	}
+
+	/**
+	 * this method loads a graph saved by save
+	 * @param file the file to read
+	 * @return a new graph holding the saved towns and roads
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws IOException if the file cannot be read or is not a graph file of a
+	 * known version
+	 */
+	public static Graph load(File file) throws FileNotFoundException, IOException
+	{
+		Graph graph;
+		graph = new Graph();
+		load(file, graph);
+		return graph;
+	}
+
+	/**
+	 * this method adds the towns and roads of a saved graph to a graph, as
+	 * addVertex and addEdge would. Towns the graph already has are kept and reused.
+	 * @param file the file to read
+	 * @param graph the graph to add to; unchanged if the file cannot be loaded
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws IOException if the file cannot be read or is not a graph file of a
+	 * known version
+	 */
+	public static void load(File file, Graph graph) throws FileNotFoundException, IOException
+	{
+		try(FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel())
+		{
+			GraphFile reader;
+			reader = new GraphFile(channel, 0);
+
+			IntBuffer header;
+			header = reader.ints(HEADER_INTS);
+			if(header.get(0) != MAGIC)
+			{
+				throw new IOException(file + " is not a graph file");
+			}
+			if(header.get(1) < 1 || header.get(1) > FORMAT_VERSION)
+			{
+				throw new IOException(file + " has graph file version " + header.get(1) + ", expected at most " + FORMAT_VERSION);
+			}
+			int lowestName = header.get(1) == 1 ? 0 : NO_NAME;
+			int n = header.get(2);
+			int m = header.get(3);
+			int r = header.get(4);
+			// n + 1 and r + 1 offsets follow, so neither count may be the largest int
+			if(n < 0 || m < 0 || r < 0 || n == Integer.MAX_VALUE || r == Integer.MAX_VALUE)
+			{
+				throw new IOException(file + " is corrupt");
+			}
+
+			String[] townNames;
+			townNames = reader.names(n);
+
+			String[] roadNames;
+			roadNames = reader.names(r);
+
+			IntBuffer offsets;
+			offsets = reader.ints(n + 1);
+
+			IntBuffer targets;
+			targets = reader.ints(m);
+
+			IntBuffer weights;
+			weights = reader.ints(m);
+
+			IntBuffer names;
+			names = reader.ints(m);
+
+			String[] from;
+			from = new String[m];
+
+			String[] to;
+			to = new String[m];
+
+			int[] lengths;
+			lengths = new int[m];
+
+			String[] called;
+			called = new String[m];
+
+			for(int v = 0; v < n; v++)
+			{
+				int first = offsets.get(v);
+				int last = offsets.get(v + 1);
+				if(first < 0 || first > last || last > m)
+				{
+					throw new IOException(file + " is corrupt");
+				}
+				for(int k = first; k < last; k++)
+				{
+					if(targets.get(k) < 0 || targets.get(k) >= n || weights.get(k) < 0 || names.get(k) < lowestName || names.get(k) >= r)
+					{
+						throw new IOException(file + " is corrupt");
+					}
+					from[k] = townNames[v];
+					to[k] = townNames[targets.get(k)];
+					lengths[k] = weights.get(k);
+					called[k] = names.get(k) == NO_NAME ? null : roadNames[names.get(k)];
+				}
+			}
+			if(n > 0 && offsets.get(n) != m || n == 0 && m != 0)
+			{
+				throw new IOException(file + " is corrupt");
+			}
+
+			for(String name : townNames)
+			{
+				graph.addVertex(new Town(name));
+			}
+			graph.addRoads(from, to, lengths, called, m);
+		}
+	}
+
+	/**
+	 * this method writes a list of names as byte offsets followed by padded UTF-8 bytes
+	 */
+	private static void writeNames(DataOutputStream out, ArrayList<String> names) throws IOException
+	{
+		byte[][] encoded;
+		encoded = new byte[names.size()][];
+
+		int offset;
+		offset = 0;
+		out.writeInt(offset);
+		for(int k = 0; k < encoded.length; k++)
+		{
+			encoded[k] = names.get(k).getBytes(StandardCharsets.UTF_8);
+			offset += encoded[k].length;
+			out.writeInt(offset);
+		}
+		for(byte[] bytes : encoded)
+		{
+			out.write(bytes);
+		}
+		for(int pad = offset; pad % Integer.BYTES != 0; pad++)
+		{
+			out.write(0);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException
+	{
+		for(int k = 0; k < count; k++)
+		{
+			out.writeInt(values[k]);
+		}
+	}
+
+	/**
+	 * this method maps the next count ints of the file
+	 * @throws IOException if the file ends first
+	 */
+	private IntBuffer ints(int count) throws IOException
+	{
+		return map((long) count * Integer.BYTES).asIntBuffer();
+	}
+
+	/**
+	 * this method reads the next list of count names written by writeNames
+	 * @throws IOException if the file ends first or the offsets are out of order
+	 */
+	private String[] names(int count) throws IOException
+	{
+		IntBuffer offsets;
+		offsets = ints(count + 1);
+
+		int length;
+		length = offsets.get(count);
+		if(length < 0)
+		{
+			throw new IOException("Corrupt name table");
+		}
+
+		MappedByteBuffer bytes;
+		bytes = map(length);
+		position += (Integer.BYTES - length % Integer.BYTES) % Integer.BYTES;
+
+		byte[] buffer;
+		buffer = new byte[length];
+		bytes.get(buffer);
+
+		String[] names;
+		names = new String[count];
+		for(int k = 0; k < count; k++)
+		{
+			int first = offsets.get(k);
+			int last = offsets.get(k + 1);
+			if(first < 0 || first > last || last > length)
+			{
+				throw new IOException("Corrupt name table");
+			}
+			names[k] = new String(buffer, first, last - first, StandardCharsets.UTF_8);
+		}
+		return names;
+	}
+
+	/**
+	 * this method maps the next bytes of the file and moves past them
+	 * @throws IOException if the file ends first
+	 */
+	private MappedByteBuffer map(long length) throws IOException
+	{
+		if(length < 0 || length > Integer.MAX_VALUE || position + length > channel.size())
+		{
+			throw new IOException("Graph file is truncated");
+		}
+		MappedByteBuffer bytes;
+		bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		position += length;
+		return bytes;
+	}
+}
@@ -0,0 +1,614 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One immutable version of a town graph, published by VersionedTownGraph.
+ *
+ * Towns get IDs in the order they are added. Towns and the roads touching each
+ * town are stored in chunks of CHUNK IDs, and the name table is split into
+ * PARTS hash partitions. A Batch of edits copies only the top-level arrays, the
+ * chunks holding towns it changes and the partitions holding names it changes;
+ * every other chunk and partition is shared with the version it was made from.
+ *
+ * Nothing in a snapshot ever changes, so any number of threads may query it
+ * without locks and keep getting the same answers.
+ */
+public final class GraphSnapshot {
+
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int PARTS = 256;
+	private static final Road[] NO_ROADS = new Road[0];
+
+	private final long version;
+	private final Town[][] towns;
+	private final Road[][][] roads;
+	private final ArrayList<Map<String, Integer>> names;
+	private final int bound;
+	private final int townCount;
+	private final int roadCount;
+
+	/**
+	 * Constructor
+	 */
+	private GraphSnapshot(long version, Town[][] towns, Road[][][] roads, ArrayList<Map<String, Integer>> names, int bound, int townCount, int roadCount)
+	{
+		this.version = version;
+		this.towns = towns;
+		this.roads = roads;
+		this.names = names;
+		this.bound = bound;
+		this.townCount = townCount;
+		this.roadCount = roadCount;
+	}
+
+	/**
+	 * this method makes the first version of a graph, with no towns
+	 * @return the empty snapshot, version 0
+	 */
+	static GraphSnapshot empty()
+	{
+		ArrayList<Map<String, Integer>> names;
+		names = new ArrayList<>(PARTS);
+		for(int p = 0; p < PARTS; p++)
+		{
+			names.add(new HashMap<>());
+		}
+		return new GraphSnapshot(0, new Town[0][], new Road[0][][], names, 0, 0, 0);
+	}
+
+	/**
+	 * this method starts a batch of edits on top of this version
+	 * @return the batch
+	 */
+	Batch edit()
+	{
+		return new Batch(this);
+	}
+
+	/**
+	 * this method returns the version number, which goes up by one with every
+	 * published batch
+	 * @return the version
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * this method returns the number of towns
+	 * @return the number of towns
+	 */
+	public int townCount()
+	{
+		return townCount;
+	}
+
+	/**
+	 * this method returns the number of roads
+	 * @return the number of roads
+	 */
+	public int roadCount()
+	{
+		return roadCount;
+	}
+
+	/**
+	 * this method Gets a town with a given name
+	 * @param name the town's name
+	 * @return the Town specified by the name, or null if town does not exist
+	 */
+	public Town getTown(String name)
+	{
+		int id = id(name);
+		return id == TownIndex.MISSING ? null : town(id);
+	}
+
+	/**
+	 * this method Determines if a town is in this version
+	 * @param name the town's name
+	 * @return true if the town is in the graph, false if not
+	 */
+	public boolean containsTown(String name)
+	{
+		return id(name) != TownIndex.MISSING;
+	}
+
+	/**
+	 * this method Returns the name of the road that both towns are connected through
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return name of road if town 1 and town2 are in the same road, returns null if not
+	 */
+	public String getRoad(String town1, String town2)
+	{
+		Road road = find(id(town1), id(town2));
+		return road == null ? null : road.getName();
+	}
+
+	/**
+	 * this method Determines if a road joins two towns
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return true if a road joins them, false if not
+	 */
+	public boolean containsRoadConnection(String town1, String town2)
+	{
+		return find(id(town1), id(town2)) != null;
+	}
+
+	/**
+	 * this method Creates an arraylist of all towns in alphabetical order
+	 * @return an arraylist of all town names in alphabetical order
+	 */
+	public ArrayList<String> allTowns()
+	{
+		ArrayList<String> all;
+		all = new ArrayList<>(townCount);
+		for(int id = 0; id < bound; id++)
+		{
+			if(town(id) != null)
+			{
+				all.add(town(id).getName());
+			}
+		}
+		all.sort(null);
+		return all;
+	}
+
+	/**
+	 * this method Creates an arraylist of all road names in sorted order
+	 * @return an arraylist of all road names in sorted order
+	 */
+	public ArrayList<String> allRoads()
+	{
+		ArrayList<String> all;
+		all = new ArrayList<>(roadCount);
+		for(int id = 0; id < bound; id++)
+		{
+			Road[] touching = roads(id);
+			for(int k = 0; touching != null && k < touching.length; k++)
+			{
+				// every road appears at both ends; keep it at its source end only
+				if(touching[k].getTownById(id) == touching[k].getSource())
+				{
+					all.add(touching[k].getName());
+				}
+			}
+		}
+		all.sort(null);
+		return all;
+	}
+
+	/**
+	 * this method Returns the shortest path from town 1 to town 2 in this version
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return an Arraylist of strings describing the roads of the path, in the same
+	 * format as Graph.shortestPath; empty if the towns have no path to connect them
+	 */
+	public ArrayList<String> getPath(String town1, String town2)
+	{
+		return shortestPaths(town1, Collections.singleton(town2)).get(town2);
+	}
+
+	/**
+	 * this method Returns the shortest paths from one town to several others with a
+	 * single search, which stops once every target is settled. If a target cannot be
+	 * reached, the search explores every town the source can reach.
+	 * @param source name of the starting town
+	 * @param targets names of the ending towns
+	 * @return a map from each target to its path, in the same format as getPath
+	 */
+	public Map<String, ArrayList<String>> shortestPaths(String source, Collection<String> targets)
+	{
+		int s;
+		s = id(source);
+
+		int[] dist;
+		dist = new int[bound];
+		Arrays.fill(dist, Graph.UNREACHED);
+
+		Road[] prev;
+		prev = new Road[bound];
+
+		boolean[] wanted;
+		wanted = new boolean[bound];
+
+		int remaining;
+		remaining = 0;
+		for(String target : targets)
+		{
+			int t = id(target);
+			if(t != TownIndex.MISSING && !wanted[t])
+			{
+				wanted[t] = true;
+				remaining++;
+			}
+		}
+
+		if(s != TownIndex.MISSING && remaining > 0)
+		{
+			boolean[] settled = new boolean[bound];
+			IntPriorityQueue queue = new BinaryHeapQueue();
+			dist[s] = 0;
+			queue.add(0, s);
+			while(!queue.isEmpty())
+			{
+				int mDist = queue.peekPriority();
+				int town = queue.poll();
+				if(settled[town])
+				{
+					continue;
+				}
+				settled[town] = true;
+				if(wanted[town] && --remaining == 0)
+				{
+					break;
+				}
+				for(Road r : roads(town))
+				{
+					int next = r.getOppositeId(town);
+					int nDist = mDist + r.getWeight();
+					if(nDist < dist[next])
+					{
+						dist[next] = nDist;
+						prev[next] = r;
+						queue.add(nDist, next);
+					}
+				}
+			}
+		}
+
+		Map<String, ArrayList<String>> paths;
+		paths = new LinkedHashMap<>();
+		for(String target : targets)
+		{
+			int t = id(target);
+			if(t == TownIndex.MISSING || t == s || prev[t] == null)
+			{
+				paths.put(target, new ArrayList<>());
+			}
+			else
+			{
+				paths.put(target, Graph.describe(Graph.traceRoute(s, t, prev)));
+			}
+		}
+		return paths;
+	}
+
+	private static int part(String name)
+	{
+		return (name.hashCode() & 0x7fffffff) % PARTS;
+	}
+
+	private int id(String name)
+	{
+		if(name == null)
+		{
+			return TownIndex.MISSING;
+		}
+		Integer id = names.get(part(name)).get(name);
+		return id == null ? TownIndex.MISSING : id;
+	}
+
+	private Town town(int id)
+	{
+		return towns[id >>> CHUNK_BITS][id & (CHUNK - 1)];
+	}
+
+	private Road[] roads(int id)
+	{
+		return roads[id >>> CHUNK_BITS][id & (CHUNK - 1)];
+	}
+
+	/**
+	 * this method finds a road between two towns
+	 * @return the road, or null if there is none
+	 */
+	private Road find(int a, int b)
+	{
+		if(a == TownIndex.MISSING || b == TownIndex.MISSING)
+		{
+			return null;
+		}
+		for(Road r : roads(a))
+		{
+			if(r.getOppositeId(a) == b)
+			{
+				return r;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A set of edits made on top of one version and published together as the next.
+	 * A batch belongs to the thread that made it. It copies a chunk or partition the
+	 * first time it changes it, and never touches the version it started from. Once
+	 * committed it hands its arrays to the new version and refuses further edits.
+	 */
+	public static final class Batch {
+
+		private final GraphSnapshot base;
+		private Town[][] towns;
+		private Road[][][] roads;
+		private final ArrayList<Map<String, Integer>> names;
+		private final boolean[] copiedParts = new boolean[PARTS];
+		private boolean[] copiedChunks;
+		private int bound;
+		private int townCount;
+		private int roadCount;
+		private boolean committed;
+
+		/**
+		 * Constructor
+		 * @param base the version to edit
+		 */
+		private Batch(GraphSnapshot base)
+		{
+			this.base = base;
+			towns = base.towns.clone();
+			roads = base.roads.clone();
+			names = new ArrayList<>(base.names);
+			copiedChunks = new boolean[towns.length];
+			bound = base.bound;
+			townCount = base.townCount;
+			roadCount = base.roadCount;
+		}
+
+		/**
+		 * this method Adds a town
+		 * @param name the town's name
+		 * @return true if the town was added, false if it was already there
+		 * @throws IllegalStateException if the batch was already committed
+		 */
+		public boolean addTown(String name)
+		{
+			checkOpen();
+			if(name == null)
+			{
+				throw new NullPointerException();
+			}
+			if(id(name) != TownIndex.MISSING)
+			{
+				return false;
+			}
+			int id = bound++;
+			int chunk = id >>> CHUNK_BITS;
+			if(chunk == towns.length)
+			{
+				towns = Arrays.copyOf(towns, chunk + 1);
+				roads = Arrays.copyOf(roads, chunk + 1);
+				towns[chunk] = new Town[CHUNK];
+				roads[chunk] = new Road[CHUNK][];
+				copiedChunks = Arrays.copyOf(copiedChunks, chunk + 1);
+				copiedChunks[chunk] = true;
+			}
+			writable(id);
+			towns[chunk][id & (CHUNK - 1)] = new Town(name);
+			roads[chunk][id & (CHUNK - 1)] = NO_ROADS;
+			writablePart(name).put(name, id);
+			townCount++;
+			return true;
+		}
+
+		/**
+		 * this method Adds a road between two towns
+		 * @param town1 name of town 1
+		 * @param town2 name of town 2
+		 * @param weight the road's length in miles
+		 * @param roadName the road's name
+		 * @return true if the road was added, false if either town is missing
+		 * @throws IllegalArgumentException if weight is negative, as in TownGraphManager
+		 * @throws IllegalStateException if the batch was already committed
+		 */
+		public boolean addRoad(String town1, String town2, int weight, String roadName)
+		{
+			checkOpen();
+			if(weight < 0)
+			{
+				throw new IllegalArgumentException();
+			}
+			int a = id(town1);
+			int b = id(town2);
+			if(a == TownIndex.MISSING || b == TownIndex.MISSING)
+			{
+				return false;
+			}
+			Road road = new Road(town(a), town(b), weight, roadName, a, b);
+			append(a, road);
+			if(b != a)
+			{
+				append(b, road);
+			}
+			roadCount++;
+			return true;
+		}
+
+		/**
+		 * this method Deletes a road between two towns. As in TownGraphManager, the
+		 * name is not compared with the road's, but a null name deletes nothing.
+		 * @param town1 name of town 1
+		 * @param town2 name of town 2
+		 * @param roadName the road's name
+		 * @return true if a road joined the towns and was deleted
+		 * @throws IllegalStateException if the batch was already committed
+		 */
+		public boolean deleteRoadConnection(String town1, String town2, String roadName)
+		{
+			checkOpen();
+			int a = id(town1);
+			int b = id(town2);
+			if(a == TownIndex.MISSING || b == TownIndex.MISSING || roadName == null)
+			{
+				return false;
+			}
+			Road road = null;
+			for(Road r : roads(a))
+			{
+				if(r.getOppositeId(a) == b)
+				{
+					road = r;
+				}
+			}
+			if(road == null)
+			{
+				return false;
+			}
+			drop(a, road);
+			if(b != a)
+			{
+				drop(b, road);
+			}
+			roadCount--;
+			return true;
+		}
+
+		/**
+		 * this method Deletes a town and every road touching it
+		 * @param name the town's name
+		 * @return true if the town was deleted
+		 * @throws IllegalStateException if the batch was already committed
+		 */
+		public boolean deleteTown(String name)
+		{
+			checkOpen();
+			int id = id(name);
+			if(id == TownIndex.MISSING)
+			{
+				return false;
+			}
+			for(Road r : roads(id))
+			{
+				int other = r.getOppositeId(id);
+				if(other != id)
+				{
+					drop(other, r);
+				}
+				roadCount--;
+			}
+			writable(id);
+			towns[id >>> CHUNK_BITS][id & (CHUNK - 1)] = null;
+			roads[id >>> CHUNK_BITS][id & (CHUNK - 1)] = null;
+			writablePart(name).remove(name);
+			townCount--;
+			return true;
+		}
+
+		/**
+		 * this method Determines if a town is in the graph as edited so far
+		 * @param name the town's name
+		 * @return true if the town is there
+		 */
+		public boolean containsTown(String name)
+		{
+			return id(name) != TownIndex.MISSING;
+		}
+
+		/**
+		 * this method makes the edited graph into the next immutable version. The new
+		 * version takes over the batch's arrays, so the batch is closed to edits.
+		 * @return the new snapshot
+		 * @throws IllegalStateException if the batch was already committed
+		 */
+		GraphSnapshot commit()
+		{
+			checkOpen();
+			committed = true;
+			return new GraphSnapshot(base.version + 1, towns, roads, names, bound, townCount, roadCount);
+		}
+
+		/**
+		 * this method stops edits to a committed batch, which would change the
+		 * published version its arrays now belong to
+		 */
+		private void checkOpen()
+		{
+			if(committed)
+			{
+				throw new IllegalStateException("Batch already committed");
+			}
+		}
+
+		private int id(String name)
+		{
+			if(name == null)
+			{
+				return TownIndex.MISSING;
+			}
+			Integer id = names.get(part(name)).get(name);
+			return id == null ? TownIndex.MISSING : id;
+		}
+
+		private Town town(int id)
+		{
+			return towns[id >>> CHUNK_BITS][id & (CHUNK - 1)];
+		}
+
+		private Road[] roads(int id)
+		{
+			return roads[id >>> CHUNK_BITS][id & (CHUNK - 1)];
+		}
+
+		private void append(int id, Road road)
+		{
+			Road[] old = roads(id);
+			Road[] grown = Arrays.copyOf(old, old.length + 1);
+			grown[old.length] = road;
+			writable(id);
+			roads[id >>> CHUNK_BITS][id & (CHUNK - 1)] = grown;
+		}
+
+		private void drop(int id, Road road)
+		{
+			Road[] old = roads(id);
+			Road[] shrunk = new Road[old.length - 1];
+			int n = 0;
+			for(Road r : old)
+			{
+				if(r != road)
+				{
+					shrunk[n++] = r;
+				}
+			}
+			writable(id);
+			roads[id >>> CHUNK_BITS][id & (CHUNK - 1)] = shrunk;
+		}
+
+		/**
+		 * this method copies the chunk holding a town the first time the batch changes it
+		 */
+		private void writable(int id)
+		{
+			int chunk = id >>> CHUNK_BITS;
+			if(!copiedChunks[chunk])
+			{
+				towns[chunk] = towns[chunk].clone();
+				roads[chunk] = roads[chunk].clone();
+				copiedChunks[chunk] = true;
+			}
+		}
+
+		/**
+		 * this method copies the name partition holding a name the first time the
+		 * batch changes it
+		 */
+		private Map<String, Integer> writablePart(String name)
+		{
+			int p = part(name);
+			if(!copiedParts[p])
+			{
+				names.set(p, new HashMap<>(names.get(p)));
+				copiedParts[p] = true;
+			}
+			return names.get(p);
+		}
+	}
+}
@@ -3,11 +3,15 @@
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.After;
 import org.junit.Before;
@@ -121,6 +125,187 @@ public class GraphStudentTest {
 		assertEquals(false, graph.containsVertex(town[2]));
 	}
 
+	@Test
+	public void testRemoveVertexRemovesTouchingEdges() {
+		assertEquals(true, graph.containsEdge(town[1], town[2]));
+		graph.removeVertex(town[2]);
+		assertEquals(false, graph.containsEdge(town[1], town[2]));
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+		assertEquals(2, graph.edgesOf(town[1]).size());
+		assertEquals(10, graph.edgeSet().size());
+	}
+
+	@Test
+	public void testEdgesOfIsolatedTown() {
+		Town newTown = new Town("Town_12");
+		graph.addVertex(newTown);
+		assertTrue(graph.edgesOf(newTown).isEmpty());
+	}
+
+	@Test
+	public void testFreeze() {
+		graph.removeVertex(town[6]);
+		graph.addVertex(new Town("Town_12"));
+		CompressedGraph frozen = ((Graph) graph).freeze();
+		assertEquals(11, frozen.vertexCount());
+		assertEquals(22, frozen.arcCount());
+		for (int i = 1; i < 12; i++) {
+			for (int j = 1; j < 12; j++) {
+				assertEquals(graph.shortestPath(town[i], town[j]), frozen.shortestPath(town[i], town[j]));
+			}
+		}
+		assertEquals(Integer.valueOf(8), frozen.shortestDistances(town[1]).get(town[11]));
+		graph.removeEdge(town[2], town[11], 6, "Road_12");
+		assertEquals(2, frozen.shortestPath(town[1], town[11]).size());
+		graph.removeVertex(town[9]);
+		graph.addVertex(town[9]);
+		assertTrue(frozen.shortestPath(town[1], town[9]).isEmpty());
+		assertTrue(frozen.shortestPath(town[1], new Town("Town_13")).isEmpty());
+	}
+
+	@Test
+	public void testShortestPathCache() {
+		Graph g = (Graph) graph;
+		assertEquals(2, g.shortestPath(town[1], town[11]).size());
+		assertEquals(1, g.cachedPathTrees());
+		assertEquals(5, g.shortestPath(town[1], town[6]).size());
+		assertEquals(1, g.cachedPathTrees());
+		g.dijkstraShortestPath(town[4]);
+		assertEquals(2, g.cachedPathTrees());
+		g.removeEdge(town[2], town[11], 6, "Road_12");
+		assertEquals(0, g.cachedPathTrees());
+		assertEquals(4, g.shortestPath(town[1], town[11]).size());
+		g.setPathCacheBudget(0);
+		assertEquals(0, g.cachedPathTrees());
+		assertEquals(4, g.shortestPath(town[1], town[11]).size());
+	}
+
+	@Test
+	public void testShortestPathsFrom() {
+		graph.addVertex(new Town("Town_12"));
+		SingleSourcePaths paths = ((Graph) graph).shortestPathsFrom(town[1]);
+		assertEquals(0, paths.distanceTo(town[1]));
+		assertEquals(8, paths.distanceTo(town[11]));
+		assertEquals(15, paths.distanceTo(town[6]));
+		assertEquals(SingleSourcePaths.NO_ROUTE, paths.distanceTo(new Town("Town_12")));
+		assertEquals(graph.shortestPath(town[1], town[6]), paths.pathTo(town[6]));
+		assertTrue(paths.pathTo(new Town("Town_12")).isEmpty());
+		graph.dijkstraShortestPath(town[4]);
+		assertEquals(3, ((Graph) graph).getLastSearch().distanceTo(town[8]));
+	}
+
+	@Test
+	public void testEdgeSetContains() {
+		Road road = graph.getEdge(town[1], town[2]);
+		assertTrue(graph.edgeSet().contains(road));
+		assertTrue(graph.edgesOf(town[2]).contains(road));
+		assertEquals(road.hashCode(), new Road(town[2], town[1], "Other").hashCode());
+		Road parallel = graph.addEdge(town[2], town[1], 9, "Road_13");
+		assertEquals(13, graph.edgeSet().size());
+		assertEquals(3, graph.edgesOf(town[2]).size());
+		assertSame(parallel, graph.removeEdge(town[1], town[2], 9, "Road_13"));
+		assertTrue(graph.edgeSet().contains(road));
+		assertSame(road, graph.removeEdge(town[1], town[2], 2, "Road_1"));
+		assertEquals(11, graph.edgeSet().size());
+	}
+
+	@Test
+	public void testShortestPathsFromAfterEdit() {
+		SingleSourcePaths paths = ((Graph) graph).shortestPathsFrom(town[1]);
+		ArrayList<String> path = paths.pathTo(town[6]);
+		graph.removeVertex(town[6]);
+		graph.removeVertex(town[8]);
+		graph.addVertex(town[8]);
+		graph.addVertex(new Town("Town_12"));
+		assertEquals(15, paths.distanceTo(town[6]));
+		assertEquals(path, paths.pathTo(town[6]));
+		assertEquals(6, paths.distanceTo(town[8]));
+		assertTrue(paths.hasPathTo(town[8]));
+		assertEquals(SingleSourcePaths.NO_ROUTE, paths.distanceTo(new Town("Town_12")));
+	}
+
+	@Test
+	public void testLoadRoadsIsOneChange() throws Exception {
+		File file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		StringBuilder lines = new StringBuilder();
+		for (int n = 0; n < 100000; n++) {
+			lines.append("Road_").append(n).append(",1;Town_").append(n).append(";Town_").append(n + 1).append('\n');
+		}
+		Files.write(file.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.length() > 2 * (1 << 20));
+		Graph g = (Graph) graph;
+		long version = g.version();
+		RoadFileLoader.load(file, g, new ForkJoinPool(4));
+		assertEquals(version + 1, g.version());
+		assertEquals(100012, g.edgeSet().size());
+		assertEquals("Road_99999", g.getEdge(new Town("Town_100000"), new Town("Town_99999")).getName());
+	}
+
+	@Test
+	public void testQueueKinds() {
+		Graph g = (Graph) graph;
+		for (QueueKind kind : QueueKind.values()) {
+			g.setQueueKind(kind);
+			g.setPathCacheBudget(0);
+			assertEquals(kind, g.getQueueKind());
+			assertEquals(8, g.shortestPathsFrom(town[1]).distanceTo(town[11]));
+			assertEquals(15, g.shortestDistances(town[1]).get(town[6]).intValue());
+			assertEquals(2, g.shortestPath(town[1], town[11]).size());
+			assertEquals(2, g.bidirectionalShortestPath(town[1], town[11]).size());
+		}
+		assertTrue(QueueKind.DIAL.create(Integer.MAX_VALUE) instanceof RadixHeapQueue);
+		g.addEdge(town[6], town[7], 100000000, "Road_13");
+		g.setQueueKind(QueueKind.DIAL);
+		assertEquals(8, g.shortestPathsFrom(town[1]).distanceTo(town[11]));
+		assertEquals(8, g.freeze().shortestDistances(town[1]).get(town[11]).intValue());
+	}
+
+	@Test
+	public void testNegativeWeightRejected() {
+		Graph g = (Graph) graph;
+		int roads = g.edgeSet().size();
+		try {
+			g.addEdge(town[6], town[7], -1, "Road_13");
+			fail("negative weight accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			g.addRoads(new String[] {"Town_6", "Town_12"}, new String[] {"Town_7", "Town_13"}, new int[] {1, -1}, new String[] {"Road_13", "Road_14"}, 2);
+			fail("negative weight accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(roads, g.edgeSet().size());
+		assertFalse(g.containsVertex(new Town("Town_12")));
+	}
+
+	@Test
+	public void testSharedRoadNames() {
+		Road first = graph.addEdge(town[4], town[6], 9, new String("Road_12"));
+		Road second = graph.getEdge(town[2], town[11]);
+		assertSame(second.getName(), first.getName());
+		assertEquals(0, first.compareTo(second));
+		assertEquals("Town_4 via Road_12 to Town_6 9 mi", first.toString());
+		((Graph) graph).addRoads(new String[] {"Town_5"}, new String[] {"Town_7"}, new int[] {1}, new String[] {new String("Road_1")}, 1);
+		assertSame(graph.getEdge(town[1], town[2]).getName(), graph.getEdge(town[5], town[7]).getName());
+		assertNull(graph.addEdge(town[1], town[4], 1, null).getName());
+	}
+
+	@Test
+	public void testDeltaStepping() {
+		graph.addVertex(new Town("Town_12"));
+		SingleSourcePaths expected = ((Graph) graph).shortestPathsFrom(town[1]);
+		for (int delta : new int[] {1, 3, 100}) {
+			SingleSourcePaths paths = DeltaStepping.search((Graph) graph, town[1], delta, ForkJoinPool.commonPool());
+			for (int i = 1; i < 12; i++) {
+				assertEquals(expected.distanceTo(town[i]), paths.distanceTo(town[i]));
+				assertEquals(expected.pathTo(town[i]).size(), paths.pathTo(town[i]).size());
+			}
+			assertEquals(SingleSourcePaths.NO_ROUTE, paths.distanceTo(new Town("Town_12")));
+		}
+		assertEquals(graph.shortestPath(town[1], town[6]), DeltaStepping.search((Graph) graph, town[1]).pathTo(town[6]));
+	}
+
 	@Test
 	public void testVertexSet() {
 		Set<Town> roads = graph.vertexSet();
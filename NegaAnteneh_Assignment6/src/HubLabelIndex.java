@@ -0,0 +1,329 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A hub-label distance oracle built once from a Graph of towns and roads.
+ *
+ * Every town gets a label: a list of hub towns with its distance to each, sorted
+ * by hub. Labels are built by pruned Dijkstra's searches (pruned landmark
+ * labeling) so that any two towns share a hub lying on a shortest route between
+ * them. Hubs are taken in the order of a Contraction Hierarchy, most important
+ * first, which keeps labels small. The distance between two towns is then a
+ * single merge of their two labels, without touching the roads at all. Each label
+ * entry also remembers the road leading towards its hub, so the route itself can
+ * be expanded when asked.
+ *
+ * Towns are numbered by importance inside the index and mapped to and from the
+ * graph's own town IDs through two int arrays, so nothing is boxed.
+ *
+ * The index is a snapshot: changes made to the graph afterwards are not seen, and
+ * a new index has to be built.
+ */
+public class HubLabelIndex {
+
+	/**
+	 * The distance reported between towns with no route between them
+	 */
+	public static final int NO_ROUTE = -1;
+
+	private static final int NONE = -1;
+
+	private final Graph graph;
+	private final Town[] towns;
+	private final int[] graphIds;
+	private final int[] local;
+
+	private final int[][] labelHubs;
+	private final int[][] labelDists;
+	private final Road[][] labelRoads;
+	private final int[] labelSizes;
+
+	/**
+	 * Constructor, labels every town of the graph
+	 * @param graph the graph to index
+	 */
+	public HubLabelIndex(Graph graph)
+	{
+		this(graph, new ContractionHierarchy(graph));
+	}
+
+	/**
+	 * Constructor, labels every town of the graph using the town order of an
+	 * existing Contraction Hierarchy of the same graph
+	 * @param graph the graph to index
+	 * @param hierarchy a hierarchy built from the graph in its current state
+	 */
+	public HubLabelIndex(Graph graph, ContractionHierarchy hierarchy)
+	{
+		this.graph = graph;
+
+		towns = hierarchy.getTownsByImportance();
+
+		int n;
+		n = towns.length;
+
+		graphIds = new int[n];
+		local = new int[graph.idBound()];
+		Arrays.fill(local, NONE);
+		for(int v = 0; v < n; v++)
+		{
+			graphIds[v] = graph.idOf(towns[v]);
+			local[graphIds[v]] = v;
+		}
+
+		labelHubs = new int[n][];
+		labelDists = new int[n][];
+		labelRoads = new Road[n][];
+		labelSizes = new int[n];
+		for(int v = 0; v < n; v++)
+		{
+			labelHubs[v] = new int[2];
+			labelDists[v] = new int[2];
+			labelRoads[v] = new Road[2];
+		}
+
+		int[] dist;
+		dist = new int[n];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+
+		Road[] via;
+		via = new Road[n];
+
+		int[] rootDist;
+		rootDist = new int[n];
+		Arrays.fill(rootDist, Integer.MAX_VALUE);
+
+		int[] touched;
+		touched = new int[n];
+
+		BinaryHeapQueue queue;
+		queue = new BinaryHeapQueue();
+
+		for(int hub = 0; hub < n; hub++)
+		{
+			for(int k = 0; k < labelSizes[hub]; k++)
+			{
+				rootDist[labelHubs[hub][k]] = labelDists[hub][k];
+			}
+
+			int touchedCount = 0;
+			dist[hub] = 0;
+			touched[touchedCount++] = hub;
+			queue.add(0, hub);
+
+			while(!queue.isEmpty())
+			{
+				int d = queue.peekPriority();
+				int u = queue.poll();
+				if(d > dist[u] || covered(u, d, rootDist))
+				{
+					continue;
+				}
+				addLabel(u, hub, d, via[u]);
+
+				for(Road r : graph.touchingRoads(graphIds[u]))
+				{
+					int w = local[r.getOppositeId(graphIds[u])];
+					int nDist = d + r.getWeight();
+					if(w > hub && nDist < dist[w])
+					{
+						if(dist[w] == Integer.MAX_VALUE)
+						{
+							touched[touchedCount++] = w;
+						}
+						dist[w] = nDist;
+						via[w] = r;
+						queue.add(nDist, w);
+					}
+				}
+			}
+
+			for(int k = 0; k < touchedCount; k++)
+			{
+				dist[touched[k]] = Integer.MAX_VALUE;
+				via[touched[k]] = null;
+			}
+			for(int k = 0; k < labelSizes[hub]; k++)
+			{
+				rootDist[labelHubs[hub][k]] = Integer.MAX_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * this method returns the shortest distance between two towns
+	 * @param source the starting town
+	 * @param destination the ending town
+	 * @return the length of the shortest route, or NO_ROUTE if either town is
+	 * unknown or there is no route
+	 */
+	public int distance(Town source, Town destination)
+	{
+		int s = localOf(source);
+		int t = localOf(destination);
+		if(s == NONE || t == NONE)
+		{
+			return NO_ROUTE;
+		}
+		long best = bestHub(s, t);
+		return best == Long.MAX_VALUE ? NO_ROUTE : (int) (best >>> 32);
+	}
+
+	/**
+	 * this method expands the shortest route between two towns into its roads
+	 * @param source the starting town
+	 * @param destination the ending town
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if either town is unknown or there is no route
+	 */
+	public ArrayList<Road> route(Town source, Town destination)
+	{
+		ArrayList<Road> route;
+		route = new ArrayList<>();
+
+		int s = localOf(source);
+		int t = localOf(destination);
+		if(s == NONE || t == NONE || s == t)
+		{
+			return route;
+		}
+		long best = bestHub(s, t);
+		if(best == Long.MAX_VALUE)
+		{
+			return route;
+		}
+		int hub = (int) best;
+
+		int current;
+		current = s;
+		while(current != hub)
+		{
+			Road r = labelRoads[current][find(current, hub)];
+			int next = local[r.getOppositeId(graphIds[current])];
+			route.add(new Road(towns[current], towns[next], r.getWeight(), r.getName()));
+			current = next;
+		}
+
+		ArrayList<Road> back;
+		back = new ArrayList<>();
+		current = t;
+		while(current != hub)
+		{
+			Road r = labelRoads[current][find(current, hub)];
+			int next = local[r.getOppositeId(graphIds[current])];
+			back.add(new Road(towns[next], towns[current], r.getWeight(), r.getName()));
+			current = next;
+		}
+		for(int k = back.size() - 1; k >= 0; k--)
+		{
+			route.add(back.get(k));
+		}
+		return route;
+	}
+
+	/**
+	 * this method returns the average number of hubs per town
+	 * @return the average label size
+	 */
+	public double getAverageLabelSize()
+	{
+		long total;
+		total = 0;
+		for(int size : labelSizes)
+		{
+			total += size;
+		}
+		return towns.length == 0 ? 0 : (double) total / towns.length;
+	}
+
+	/**
+	 * this method returns the number a town has inside the index
+	 * @param town the town
+	 * @return its number, or NONE if the town was not in the graph when it was indexed
+	 */
+	private int localOf(Town town)
+	{
+		int id = graph.idOf(town);
+		return id < 0 || id >= local.length ? NONE : local[id];
+	}
+
+	/**
+	 * this method merges the labels of two towns to find their best common hub
+	 * @return the distance in the high half and the hub in the low half, or
+	 * Long.MAX_VALUE if the towns share no hub
+	 */
+	private long bestHub(int s, int t)
+	{
+		int[] sHubs = labelHubs[s];
+		int[] tHubs = labelHubs[t];
+		int i = 0;
+		int j = 0;
+		long best = Long.MAX_VALUE;
+		while(i < labelSizes[s] && j < labelSizes[t])
+		{
+			if(sHubs[i] < tHubs[j])
+			{
+				i++;
+			}
+			else if(sHubs[i] > tHubs[j])
+			{
+				j++;
+			}
+			else
+			{
+				long sum = (long) labelDists[s][i] + labelDists[t][j];
+				best = Math.min(best, (sum << 32) | sHubs[i]);
+				i++;
+				j++;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * this method checks whether the labels built so far already give a route from
+	 * the current hub to a town that is no longer than the one just found
+	 * @param u the town reached
+	 * @param d the distance it was reached at
+	 * @param rootDist the current hub's label, indexed by hub
+	 */
+	private boolean covered(int u, int d, int[] rootDist)
+	{
+		for(int k = 0; k < labelSizes[u]; k++)
+		{
+			int hubDist = rootDist[labelHubs[u][k]];
+			if(hubDist != Integer.MAX_VALUE && hubDist + labelDists[u][k] <= d)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * this method finds the position of a hub in a town's label
+	 */
+	private int find(int town, int hub)
+	{
+		return Arrays.binarySearch(labelHubs[town], 0, labelSizes[town], hub);
+	}
+
+	/**
+	 * this method appends a hub to a town's label. Hubs are processed in order, so
+	 * labels stay sorted.
+	 */
+	private void addLabel(int town, int hub, int dist, Road road)
+	{
+		int size = labelSizes[town];
+		if(size == labelHubs[town].length)
+		{
+			labelHubs[town] = Arrays.copyOf(labelHubs[town], size * 2);
+			labelDists[town] = Arrays.copyOf(labelDists[town], size * 2);
+			labelRoads[town] = Arrays.copyOf(labelRoads[town], size * 2);
+		}
+		labelHubs[town][size] = hub;
+		labelDists[town][size] = dist;
+		labelRoads[town][size] = road;
+		labelSizes[town]++;
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * A min-priority queue of int items with int priorities, as used by the
+ * shortest-path searches of Graph. Items and priorities are kept unboxed.
+ *
+ * The same item may be added more than once; searches skip the stale copies
+ * when they come out. Queues made for monotone use (Dial's buckets and the radix
+ * heap) also require that nothing is added with a priority below the last one
+ * removed, which always holds in Dijkstra's search with non-negative weights.
+ */
+public interface IntPriorityQueue {
+
+	/**
+	 * this method adds an item
+	 * @param priority the item's priority, smallest first
+	 * @param item the item
+	 */
+	public void add(int priority, int item);
+
+	/**
+	 * this method returns the smallest priority in the queue
+	 * @return the priority of the item poll would remove
+	 * @throws java.util.NoSuchElementException if the queue is empty
+	 */
+	public int peekPriority();
+
+	/**
+	 * this method removes an item with the smallest priority
+	 * @return the item removed
+	 * @throws java.util.NoSuchElementException if the queue is empty
+	 */
+	public int poll();
+
+	/**
+	 * this method returns the number of items in the queue
+	 * @return the number of items
+	 */
+	public int size();
+
+	/**
+	 * this method returns whether the queue is empty
+	 * @return true if the queue holds no items
+	 */
+	public default boolean isEmpty()
+	{
+		return size() == 0;
+	}
+}
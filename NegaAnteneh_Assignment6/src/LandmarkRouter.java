@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An A* router guided by landmarks (ALT).
+ *
+ * A handful of landmark towns are picked far apart from each other and the
+ * distance from every landmark to every town is stored. By the triangle
+ * inequality |d(L,t) - d(L,v)| never overestimates the distance from v to t, so
+ * the largest such bound over all landmarks steers the search towards the
+ * destination without losing exactness.
+ *
+ * Preparing the landmarks costs one Dijkstra's search per landmark, so it is cheap
+ * to redo after the graph changes. The router reads the graph's roads directly;
+ * its landmark distances go stale when the graph changes and it must be rebuilt.
+ */
+public class LandmarkRouter {
+
+	/**
+	 * The number of landmarks used when none is given
+	 */
+	public static final int DEFAULT_LANDMARKS = 8;
+
+	private static final int UNREACHABLE = -1;
+
+	private final Graph graph;
+	private final ArrayList<Town> landmarks;
+	private final int count;
+	private final int[] landmarkDistances;
+
+	/**
+	 * Constructor using the default number of landmarks
+	 * @param graph the graph to route on
+	 */
+	public LandmarkRouter(Graph graph)
+	{
+		this(graph, DEFAULT_LANDMARKS);
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the graph to route on
+	 * @param count the number of landmarks to pick
+	 * @throws IllegalArgumentException if count is less than 1
+	 */
+	public LandmarkRouter(Graph graph, int count)
+	{
+		if(count < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.graph = graph;
+		landmarks = new ArrayList<>();
+		this.count = Math.min(count, graph.vertexSet().size());
+
+		// one row of landmark distances per town ID, so a bound reads one cache line
+		landmarkDistances = new int[graph.idBound() * this.count];
+		Arrays.fill(landmarkDistances, UNREACHABLE);
+
+		Town next;
+		next = graph.vertexSet().stream().min(Town::compareTo).orElse(null);
+		for(int n = 0; n < this.count; n++)
+		{
+			landmarks.add(next);
+			int[] dist = graph.distancesFrom(graph.idOf(next));
+			for(int id = 0; id < dist.length; id++)
+			{
+				if(dist[id] != Graph.UNREACHED)
+				{
+					landmarkDistances[id * this.count + n] = dist[id];
+				}
+			}
+			if(n + 1 < this.count)
+			{
+				next = graph.townAt(farthestTown(n + 1));
+			}
+		}
+	}
+
+	/**
+	 * this method returns the landmark towns in the order they were picked
+	 * @return the landmarks
+	 */
+	public ArrayList<Town> getLandmarks()
+	{
+		return new ArrayList<>(landmarks);
+	}
+
+	/**
+	 * this method finds the shortest path from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An arraylist of Strings that describe the path from sourceVertex
+	 * to destinationVertex, in the same format as Graph.shortestPath
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex)
+	{
+		return Graph.describe(route(sourceVertex, destinationVertex));
+	}
+
+	/**
+	 * this method finds the shortest route from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the roads of the route in travel order, each facing the direction of
+	 * travel, or an empty list if there is no route
+	 */
+	public ArrayList<Road> route(Town sourceVertex, Town destinationVertex)
+	{
+		int source;
+		source = graph.idOf(sourceVertex);
+
+		int destination;
+		destination = graph.idOf(destinationVertex);
+
+		if(source == TownIndex.MISSING || destination == TownIndex.MISSING || source == destination)
+		{
+			return new ArrayList<>();
+		}
+
+		int n = graph.idBound();
+		int[] dist = new int[n];
+		Road[] prev = new Road[n];
+		boolean[] settled = new boolean[n];
+		Arrays.fill(dist, Graph.UNREACHED);
+
+		// keyed by the estimated total, which is not monotone enough for the bucket queues
+		IntPriorityQueue queue;
+		queue = new BinaryHeapQueue();
+
+		dist[source] = 0;
+		queue.add(lowerBound(source, destination), source);
+
+		while(!queue.isEmpty())
+		{
+			int town;
+			town = queue.poll();
+
+			if(settled[town])
+			{
+				continue;
+			}
+			settled[town] = true;
+			if(town == destination)
+			{
+				return Graph.traceRoute(source, destination, prev);
+			}
+
+			int mDist;
+			mDist = dist[town];
+
+			for(Road r : graph.touchingRoads(town))
+			{
+				int next;
+				next = r.getOppositeId(town);
+
+				int nDist;
+				nDist = mDist + r.getWeight();
+
+				if(nDist < dist[next])
+				{
+					dist[next] = nDist;
+					prev[next] = r;
+					queue.add(nDist + lowerBound(next, destination), next);
+				}
+			}
+		}
+		return new ArrayList<>();
+	}
+
+	/**
+	 * this method returns the largest triangle inequality bound on the distance
+	 * from a town to the destination over all landmarks
+	 * @param town the ID of the town to bound from
+	 * @param target the ID of the destination
+	 * @return a distance that is never more than the true distance
+	 */
+	private int lowerBound(int town, int target)
+	{
+		int from;
+		from = town * count;
+
+		int to;
+		to = target * count;
+
+		int bound;
+		bound = 0;
+		for(int n = 0; n < count; n++)
+		{
+			int fromTown = landmarkDistances[from + n];
+			int toTarget = landmarkDistances[to + n];
+			if(fromTown != UNREACHABLE && toTarget != UNREACHABLE)
+			{
+				bound = Math.max(bound, Math.abs(toTarget - fromTown));
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * this method picks the town farthest from the landmarks chosen so far, preferring
+	 * towns none of them can reach so every part of the map gets a landmark
+	 * @param chosen the number of landmarks chosen so far
+	 * @return the ID of the next landmark
+	 */
+	private int farthestTown(int chosen)
+	{
+		int farthest;
+		farthest = TownIndex.MISSING;
+
+		long farthestDist;
+		farthestDist = -1;
+
+		for(int id = 0; id < graph.idBound(); id++)
+		{
+			Town town = graph.townAt(id);
+			if(town == null)
+			{
+				continue;
+			}
+			long nearest = Long.MAX_VALUE;
+			for(int n = 0; n < chosen; n++)
+			{
+				int d = landmarkDistances[id * count + n];
+				if(d != UNREACHABLE)
+				{
+					nearest = Math.min(nearest, d);
+				}
+			}
+			if(nearest > farthestDist || (nearest == farthestDist && town.compareTo(graph.townAt(farthest)) < 0))
+			{
+				farthest = id;
+				farthestDist = nearest;
+			}
+		}
+		return farthest;
+	}
+}
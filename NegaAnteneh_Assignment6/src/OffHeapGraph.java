@@ -0,0 +1,805 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A graph of towns and roads that keeps all of its data outside the Java heap, for
+ * road networks too large to hold as one Town and one Road object per element.
+ *
+ * Towns and roads are fixed-size records in OffHeapStores, numbered in the order
+ * they are added:
+ * <ul>
+ * <li>a town record holds the offset and length of its UTF-8 name, the hash of
+ * its name, the number of roads touching it and the first of those roads</li>
+ * <li>a road record holds its two towns, its length, the offset and length of its
+ * name, and the next road touching each of its towns, so the roads of a town form
+ * a linked list running through the road records</li>
+ * </ul>
+ * Names are looked up through an open-addressing hash table of town numbers, also
+ * off the heap. Dijkstra's search keeps its distances and predecessors in one more
+ * store, stamped per search so it never has to be cleared, and only its priority
+ * queue lives on the heap.
+ *
+ * Town and Road objects are made only when a method has to return them. Each call
+ * makes new ones, so vertexSet, edgeSet and edgesOf return copies rather than
+ * views, and cost one object per element. Their sets find roads by Road.equals,
+ * which compares only the two towns, so of several roads joining the same two
+ * towns they hold one; edgeCount counts them all. Removed towns and roads keep
+ * their numbers and storage. Like Graph, this class is not thread-safe.
+ */
+public class OffHeapGraph implements GraphInterface<Town, Road> {
+
+	/**
+	 * The distance getLastDistance reports for towns with no route
+	 */
+	public static final int NO_ROUTE = -1;
+
+	private static final int NONE = -1;
+
+	// the name length of a road without a name; NONE marks a removed road
+	private static final int NO_NAME = -2;
+
+	// the name table holds at most this many slots, and half as many towns
+	private static final int MAX_SLOTS = 1 << 30;
+
+	private static final int TOWN_BYTES = 32;
+	private static final int TOWN_NAME = 0;
+	private static final int TOWN_NAME_LENGTH = 8;
+	private static final int TOWN_FIRST_ROAD = 12;
+	private static final int TOWN_HASH = 16;
+	private static final int TOWN_DEGREE = 20;
+
+	private static final int ROAD_BYTES = 32;
+	private static final int ROAD_FROM = 0;
+	private static final int ROAD_TO = 4;
+	private static final int ROAD_WEIGHT = 8;
+	private static final int ROAD_NEXT_FROM = 12;
+	private static final int ROAD_NEXT_TO = 16;
+	private static final int ROAD_NAME_LENGTH = 20;
+	private static final int ROAD_NAME = 24;
+
+	private static final int LABEL_BYTES = 16;
+	private static final int LABEL_STAMP = 0;
+	private static final int LABEL_DIST = 4;
+	private static final int LABEL_PREV = 8;
+	private static final int LABEL_SETTLED = 12;
+
+	// a slot holds a town number plus one, EMPTY, or DELETED for a removed town
+	private static final int EMPTY = 0;
+	private static final int DELETED = -1;
+
+	private final OffHeapStore towns = new OffHeapStore();
+	private final OffHeapStore roads = new OffHeapStore();
+	private final OffHeapStore names = new OffHeapStore();
+	private final OffHeapStore labels = new OffHeapStore();
+	private OffHeapStore slots = new OffHeapStore();
+
+	private int townBound;
+	private int townCount;
+	private int roadBound;
+	private int roadCount;
+	private long nameEnd;
+	private int slotCount;
+	private int slotsUsed;
+
+	private int stamp;
+	private long version;
+	private int lastSource = NONE;
+	private int lastStamp;
+	private long lastVersion;
+
+	/**
+	 * Constructor
+	 */
+	public OffHeapGraph()
+	{
+		rehash(16);
+	}
+
+	/**
+	 * this method returns the number of towns in the graph without making any
+	 * Town objects
+	 * @return the number of towns
+	 */
+	public int vertexCount()
+	{
+		return townCount;
+	}
+
+	/**
+	 * this method returns the number of roads in the graph without making any
+	 * Road objects
+	 * @return the number of roads
+	 */
+	public int edgeCount()
+	{
+		return roadCount;
+	}
+
+	/**
+	 * this method returns how much memory the graph holds outside the heap
+	 * @return the bytes allocated
+	 */
+	public long offHeapBytes()
+	{
+		return towns.capacity() + roads.capacity() + names.capacity() + labels.capacity() + slots.capacity();
+	}
+
+	/**
+     * this method Returns an edge connecting source vertex to target vertex if such
+     * vertices and such edge exist in this graph. Otherwise returns
+     * null. If any of the specified vertices is null
+     * returns null
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @return an edge connecting source vertex to target vertex.
+     */
+	@Override
+	public Road getEdge(Town sourceVertex, Town destinationVertex)
+	{
+		int road;
+		road = findRoad(find(sourceVertex), find(destinationVertex));
+		return road == NONE ? null : road(road);
+	}
+
+	/**
+     * this method Creates a new edge in this graph, going from the source vertex to the
+     * target vertex, and returns the created edge.
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight weight of the edge
+     * @param description description for edge
+     * @return The newly created edge if added to the graph, otherwise null.
+     * @throws IllegalArgumentException if source or target vertices are not
+     * found in the graph, or the weight is negative, as in Graph.
+     * @throws NullPointerException if any of the specified vertices is null.
+     */
+	@Override
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) throws IllegalArgumentException, NullPointerException
+	{
+		if(sourceVertex == null || destinationVertex == null)
+		{
+			throw new NullPointerException();
+		}
+		int from;
+		from = find(sourceVertex);
+
+		int to;
+		to = find(destinationVertex);
+
+		if(from == NONE || to == NONE || weight < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		byte[] name;
+		name = description == null ? new byte[0] : description.getBytes(StandardCharsets.UTF_8);
+
+		int road;
+		road = roadBound++;
+
+		long at;
+		at = (long) road * ROAD_BYTES;
+		roads.ensure(at + ROAD_BYTES);
+		roads.putInt(at + ROAD_FROM, from);
+		roads.putInt(at + ROAD_TO, to);
+		roads.putInt(at + ROAD_WEIGHT, weight);
+		roads.putInt(at + ROAD_NAME_LENGTH, description == null ? NO_NAME : name.length);
+		roads.putLong(at + ROAD_NAME, storeName(name));
+
+		// push the road onto the front of each town's list
+		roads.putInt(at + ROAD_NEXT_FROM, towns.getInt((long) from * TOWN_BYTES + TOWN_FIRST_ROAD));
+		towns.putInt((long) from * TOWN_BYTES + TOWN_FIRST_ROAD, road);
+		addDegree(from, 1);
+		if(to != from)
+		{
+			roads.putInt(at + ROAD_NEXT_TO, towns.getInt((long) to * TOWN_BYTES + TOWN_FIRST_ROAD));
+			towns.putInt((long) to * TOWN_BYTES + TOWN_FIRST_ROAD, road);
+			addDegree(to, 1);
+		}
+		else
+		{
+			roads.putInt(at + ROAD_NEXT_TO, NONE);
+		}
+		roadCount++;
+		version++;
+		return new Road(sourceVertex, destinationVertex, weight, description, from, to);
+	}
+
+	/**
+     * this method Adds the specified vertex to this graph if not already present. More
+     * formally, adds the specified vertex, v, to this graph if
+     * this graph contains no vertex u such that
+     * u.equals(v). If this graph already contains such vertex, the call
+     * leaves this graph unchanged and returns false.
+     * @param v vertex to be added to this graph.
+     * @return true if this graph did not already contain the specified
+     * vertex.
+     * @throws NullPointerException if the specified vertex is null.
+     * @throws IllegalStateException if the graph already holds as many towns as its
+     * name table can index, about 2^29
+     */
+	@Override
+	public boolean addVertex(Town v) throws NullPointerException
+	{
+		if(v == null)
+		{
+			throw new NullPointerException();
+		}
+		byte[] name;
+		name = v.getName().getBytes(StandardCharsets.UTF_8);
+
+		int hash;
+		hash = v.getName().hashCode();
+		if(find(name, hash) != NONE)
+		{
+			return false;
+		}
+		if((slotsUsed + 1) * 2L > slotCount)
+		{
+			long count = Math.max(16, Long.highestOneBit(Math.max(1, townCount) * 4L));
+			if(count > MAX_SLOTS)
+			{
+				throw new IllegalStateException("OffHeapGraph cannot hold more than " + townCount + " towns");
+			}
+			rehash((int) count);
+		}
+
+		int town;
+		town = townBound++;
+
+		long at;
+		at = (long) town * TOWN_BYTES;
+		towns.ensure(at + TOWN_BYTES);
+		towns.putLong(at + TOWN_NAME, storeName(name));
+		towns.putInt(at + TOWN_NAME_LENGTH, name.length);
+		towns.putInt(at + TOWN_FIRST_ROAD, NONE);
+		towns.putInt(at + TOWN_HASH, hash);
+		towns.putInt(at + TOWN_DEGREE, 0);
+		insertSlot(town, hash);
+		townCount++;
+		version++;
+		return true;
+	}
+
+	/**
+     * this method Returns true if and only if this graph contains an edge going
+     * from the source vertex to the target vertex. If any of
+     * the specified vertices does not exist in the graph, or if is
+     * null, returns false.
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @return true if this graph contains the specified edge.
+     */
+	@Override
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex)
+	{
+		return findRoad(find(sourceVertex), find(destinationVertex)) != NONE;
+	}
+
+	/**
+     * this method Returns true if this graph contains the specified vertex. If the
+     * specified vertex is null returns false.
+     * @param v vertex whose presence in this graph is to be tested.
+     * @return true if this graph contains the specified vertex.
+     */
+	@Override
+	public boolean containsVertex(Town v)
+	{
+		return find(v) != NONE;
+	}
+
+	/**
+     * this method Returns a new set of every edge in this graph. Each call makes a
+     * Road object for every road, so it costs memory in proportion to the graph.
+     * @return a set of the edges contained in this graph.
+     */
+	@Override
+	public Set<Road> edgeSet()
+	{
+		Set<Road> all;
+		all = new HashSet<>();
+		for(int road = 0; road < roadBound; road++)
+		{
+			if(roads.getInt((long) road * ROAD_BYTES + ROAD_NAME_LENGTH) != NONE)
+			{
+				all.add(road(road));
+			}
+		}
+		return all;
+	}
+
+	/**
+     * this method Returns a new set of all edges touching the specified vertex. If no
+     * edges are touching the specified vertex returns an empty set.
+     * @param vertex the vertex for which a set of touching edges is to be
+     * returned.
+     * @return a set of all edges touching the specified vertex.
+     * @throws IllegalArgumentException if vertex is not found in the graph.
+     * @throws NullPointerException if vertex is null.
+     */
+	@Override
+	public Set<Road> edgesOf(Town vertex)
+	{
+		if(vertex == null)
+		{
+			throw new NullPointerException();
+		}
+		int town;
+		town = find(vertex);
+		if(town == NONE)
+		{
+			throw new IllegalArgumentException();
+		}
+		Set<Road> touching;
+		touching = new HashSet<>();
+		for(int road = firstRoad(town); road != NONE; road = nextRoad(road, town))
+		{
+			touching.add(road(road));
+		}
+		return touching;
+	}
+
+	/**
+     * this method Removes an edge going from source vertex to target vertex, if such
+     * vertices and such edge exist in this graph. Like Graph, it removes the most
+     * recently added road between the two, whatever its name.
+     * @param sourceVertex source vertex of the edge.
+     * @param destinationVertex target vertex of the edge.
+     * @param weight weight of the edge
+     * @param description description of the edge
+     * @return The removed edge, or null if no edge removed.
+     */
+	@Override
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description)
+	{
+		if(weight <= -1 || description == null)
+		{
+			return null;
+		}
+		int from;
+		from = find(sourceVertex);
+
+		int road;
+		road = findRoad(from, find(destinationVertex));
+		if(road == NONE)
+		{
+			return null;
+		}
+		Road removed;
+		removed = road(road);
+		unlink(road, from);
+		int other = opposite(road, from);
+		if(other != from)
+		{
+			unlink(road, other);
+		}
+		roads.putInt((long) road * ROAD_BYTES + ROAD_NAME_LENGTH, NONE);
+		roadCount--;
+		version++;
+		return removed;
+	}
+
+	/**
+     * this method Removes the specified vertex from this graph including all its touching
+     * edges if present.
+     * @param v vertex to be removed from this graph, if present.
+     * @return true if the graph contained the specified vertex;
+     * false otherwise.
+     */
+	@Override
+	public boolean removeVertex(Town v)
+	{
+		int town;
+		town = find(v);
+		if(town == NONE)
+		{
+			return false;
+		}
+		for(int road = firstRoad(town); road != NONE; road = nextRoad(road, town))
+		{
+			int other = opposite(road, town);
+			if(other != town)
+			{
+				unlink(road, other);
+			}
+			roads.putInt((long) road * ROAD_BYTES + ROAD_NAME_LENGTH, NONE);
+			roadCount--;
+		}
+		long at;
+		at = (long) town * TOWN_BYTES;
+		towns.putInt(at + TOWN_FIRST_ROAD, NONE);
+		towns.putInt(at + TOWN_DEGREE, 0);
+		towns.putInt(at + TOWN_NAME_LENGTH, NONE);
+		slots.putInt((long) slotOf(town) * Integer.BYTES, DELETED);
+		townCount--;
+		version++;
+		return true;
+	}
+
+	/**
+     * this method Returns a new set of every vertex in this graph. Each call makes a
+     * Town object for every town, so it costs memory in proportion to the graph.
+     * @return a set of the vertices contained in this graph.
+     */
+	@Override
+	public Set<Town> vertexSet()
+	{
+		Set<Town> all;
+		all = new HashSet<>();
+		for(int town = 0; town < townBound; town++)
+		{
+			if(towns.getInt((long) town * TOWN_BYTES + TOWN_NAME_LENGTH) != NONE)
+			{
+				all.add(town(town));
+			}
+		}
+		return all;
+	}
+
+	/**
+     * this method Find the shortest path from the sourceVertex to the destinationVertex.
+     * The search reads the off-heap records directly and stops once the
+     * destinationVertex is settled; only the roads of the path become Road objects.
+     * @param sourceVertex starting vertex
+     * @param destinationVertex ending vertex
+     * @return An arraylist of Strings that describe the path from sourceVertex
+     * to destinationVertex, in the same format as Graph.shortestPath
+     */
+	@Override
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex)
+	{
+		int source;
+		source = find(sourceVertex);
+
+		int destination;
+		destination = find(destinationVertex);
+
+		if(source == NONE || destination == NONE || source == destination || !search(source, destination))
+		{
+			return new ArrayList<>();
+		}
+		return Graph.describe(route(source, destination));
+	}
+
+	/**
+     * this method runs Dijkstra's search from the sourceVertex over every town it
+     * can reach. Distances are read back with getLastDistance.
+     * @param sourceVertex the vertex to find shortest path from
+     */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex)
+	{
+		lastSource = find(sourceVertex);
+		if(lastSource != NONE)
+		{
+			search(lastSource, NONE);
+		}
+		lastStamp = stamp;
+		lastVersion = version;
+	}
+
+	/**
+	 * this method returns the shortest distance to a town from the town of the last
+	 * call to dijkstraShortestPath. The search is run again if the graph or the
+	 * search space has been used since.
+	 * @param town the destination
+	 * @return the distance, or NO_ROUTE if there is none or dijkstraShortestPath has
+	 * not been called
+	 */
+	public int getLastDistance(Town town)
+	{
+		if(lastSource == NONE)
+		{
+			return NO_ROUTE;
+		}
+		if(lastStamp != stamp || lastVersion != version)
+		{
+			search(lastSource, NONE);
+			lastStamp = stamp;
+			lastVersion = version;
+		}
+		int id = find(town);
+		return id == NONE || !labeled(id) ? NO_ROUTE : labels.getInt((long) id * LABEL_BYTES + LABEL_DIST);
+	}
+
+	/**
+	 * this method runs Dijkstra's search, leaving every labeled town's distance and
+	 * predecessor road in the label store under a new stamp
+	 * @param source the town to search from
+	 * @param target the town to stop at, or NONE to settle every reachable town
+	 * @return true if the target was reached
+	 */
+	private boolean search(int source, int target)
+	{
+		if(stamp == Integer.MAX_VALUE)
+		{
+			labels.clear();
+			stamp = 0;
+		}
+		stamp++;
+		labels.ensure((long) townBound * LABEL_BYTES);
+
+		IntPriorityQueue queue;
+		queue = new BinaryHeapQueue();
+		label(source, 0, NONE);
+		queue.add(0, source);
+		while(!queue.isEmpty())
+		{
+			int mDist = queue.peekPriority();
+			int town = queue.poll();
+			long at = (long) town * LABEL_BYTES;
+			if(labels.getInt(at + LABEL_SETTLED) == stamp)
+			{
+				continue;
+			}
+			labels.putInt(at + LABEL_SETTLED, stamp);
+			if(town == target)
+			{
+				return true;
+			}
+			for(int road = firstRoad(town); road != NONE; road = nextRoad(road, town))
+			{
+				int next = opposite(road, town);
+				int nDist = mDist + roads.getInt((long) road * ROAD_BYTES + ROAD_WEIGHT);
+				if(!labeled(next) || nDist < labels.getInt((long) next * LABEL_BYTES + LABEL_DIST))
+				{
+					label(next, nDist, road);
+					queue.add(nDist, next);
+				}
+			}
+		}
+		return target == NONE;
+	}
+
+	private boolean labeled(int town)
+	{
+		return labels.getInt((long) town * LABEL_BYTES + LABEL_STAMP) == stamp;
+	}
+
+	private void label(int town, int dist, int road)
+	{
+		long at = (long) town * LABEL_BYTES;
+		labels.putInt(at + LABEL_STAMP, stamp);
+		labels.putInt(at + LABEL_DIST, dist);
+		labels.putInt(at + LABEL_PREV, road);
+	}
+
+	/**
+	 * this method walks the last search's predecessor roads back from a town
+	 * @return the roads from source to town in travel order, each facing the
+	 * direction of travel
+	 */
+	private ArrayList<Road> route(int source, int town)
+	{
+		ArrayList<Road> route;
+		route = new ArrayList<>();
+
+		Town to;
+		to = town(town);
+		for(int current = town; current != source; )
+		{
+			int road = labels.getInt((long) current * LABEL_BYTES + LABEL_PREV);
+			int from = opposite(road, current);
+			Town start = town(from);
+			route.add(new Road(start, to, roads.getInt((long) road * ROAD_BYTES + ROAD_WEIGHT), roadName(road)));
+			to = start;
+			current = from;
+		}
+		Collections.reverse(route);
+		return route;
+	}
+
+	/**
+	 * this method finds the road touching town a added last whose other end is b
+	 * @return the road's number, or NONE
+	 */
+	private int findRoad(int a, int b)
+	{
+		if(a == NONE || b == NONE)
+		{
+			return NONE;
+		}
+		for(int road = firstRoad(a); road != NONE; road = nextRoad(road, a))
+		{
+			if(opposite(road, a) == b)
+			{
+				return road;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * this method takes a road out of one of its towns' lists
+	 */
+	private void unlink(int road, int town)
+	{
+		int previous;
+		previous = NONE;
+		for(int r = firstRoad(town); r != road; r = nextRoad(r, town))
+		{
+			previous = r;
+		}
+		int after;
+		after = nextRoad(road, town);
+		if(previous == NONE)
+		{
+			towns.putInt((long) town * TOWN_BYTES + TOWN_FIRST_ROAD, after);
+		}
+		else
+		{
+			long at = (long) previous * ROAD_BYTES;
+			roads.putInt(at + (roads.getInt(at + ROAD_FROM) == town ? ROAD_NEXT_FROM : ROAD_NEXT_TO), after);
+		}
+		addDegree(town, -1);
+	}
+
+	private int firstRoad(int town)
+	{
+		return towns.getInt((long) town * TOWN_BYTES + TOWN_FIRST_ROAD);
+	}
+
+	private int nextRoad(int road, int town)
+	{
+		long at = (long) road * ROAD_BYTES;
+		return roads.getInt(at + (roads.getInt(at + ROAD_FROM) == town ? ROAD_NEXT_FROM : ROAD_NEXT_TO));
+	}
+
+	private int opposite(int road, int town)
+	{
+		long at = (long) road * ROAD_BYTES;
+		int from = roads.getInt(at + ROAD_FROM);
+		return from == town ? roads.getInt(at + ROAD_TO) : from;
+	}
+
+	private void addDegree(int town, int change)
+	{
+		long at = (long) town * TOWN_BYTES + TOWN_DEGREE;
+		towns.putInt(at, towns.getInt(at) + change);
+	}
+
+	/**
+	 * this method makes a Road object for a stored road
+	 */
+	private Road road(int road)
+	{
+		long at = (long) road * ROAD_BYTES;
+		int from = roads.getInt(at + ROAD_FROM);
+		int to = roads.getInt(at + ROAD_TO);
+		return new Road(town(from), town(to), roads.getInt(at + ROAD_WEIGHT), roadName(road), from, to);
+	}
+
+	private String roadName(int road)
+	{
+		long at = (long) road * ROAD_BYTES;
+		if(roads.getInt(at + ROAD_NAME_LENGTH) == NO_NAME)
+		{
+			return null;
+		}
+		return readName(roads.getLong(at + ROAD_NAME), roads.getInt(at + ROAD_NAME_LENGTH));
+	}
+
+	/**
+	 * this method makes a Town object for a stored town
+	 */
+	private Town town(int town)
+	{
+		long at = (long) town * TOWN_BYTES;
+		return new Town(readName(towns.getLong(at + TOWN_NAME), towns.getInt(at + TOWN_NAME_LENGTH)));
+	}
+
+	private long storeName(byte[] name)
+	{
+		long at = nameEnd;
+		names.ensure(at + name.length);
+		for(int k = 0; k < name.length; k++)
+		{
+			names.put(at + k, name[k]);
+		}
+		nameEnd += name.length;
+		return at;
+	}
+
+	private String readName(long at, int length)
+	{
+		byte[] name = new byte[length];
+		for(int k = 0; k < length; k++)
+		{
+			name[k] = names.get(at + k);
+		}
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * this method looks a town up by name
+	 * @return the town's number, or NONE if the town is null or not in the graph
+	 */
+	private int find(Town town)
+	{
+		return town == null ? NONE : find(town.getName().getBytes(StandardCharsets.UTF_8), town.getName().hashCode());
+	}
+
+	private int find(byte[] name, int hash)
+	{
+		int mask = slotCount - 1;
+		for(int slot = hash & mask; ; slot = (slot + 1) & mask)
+		{
+			int held = slots.getInt((long) slot * Integer.BYTES);
+			if(held == EMPTY)
+			{
+				return NONE;
+			}
+			if(held != DELETED && nameIs(held - 1, name, hash))
+			{
+				return held - 1;
+			}
+		}
+	}
+
+	private boolean nameIs(int town, byte[] name, int hash)
+	{
+		long at = (long) town * TOWN_BYTES;
+		if(towns.getInt(at + TOWN_HASH) != hash || towns.getInt(at + TOWN_NAME_LENGTH) != name.length)
+		{
+			return false;
+		}
+		long start = towns.getLong(at + TOWN_NAME);
+		for(int k = 0; k < name.length; k++)
+		{
+			if(names.get(start + k) != name[k])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * this method finds the slot holding a town that is in the graph
+	 */
+	private int slotOf(int town)
+	{
+		int mask = slotCount - 1;
+		int slot = towns.getInt((long) town * TOWN_BYTES + TOWN_HASH) & mask;
+		while(slots.getInt((long) slot * Integer.BYTES) != town + 1)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insertSlot(int town, int hash)
+	{
+		int mask = slotCount - 1;
+		int slot = hash & mask;
+		while(slots.getInt((long) slot * Integer.BYTES) != EMPTY)
+		{
+			slot = (slot + 1) & mask;
+		}
+		slots.putInt((long) slot * Integer.BYTES, town + 1);
+		slotsUsed++;
+	}
+
+	/**
+	 * this method rebuilds the name table with a number of slots, dropping the
+	 * slots of removed towns
+	 * @param count the number of slots, a power of two
+	 */
+	private void rehash(int count)
+	{
+		slots = new OffHeapStore();
+		slots.ensure((long) count * Integer.BYTES);
+		slotCount = count;
+		slotsUsed = 0;
+		for(int town = 0; town < townBound; town++)
+		{
+			long at = (long) town * TOWN_BYTES;
+			if(towns.getInt(at + TOWN_NAME_LENGTH) != NONE)
+			{
+				insertSlot(town, towns.getInt(at + TOWN_HASH));
+			}
+		}
+	}
+}
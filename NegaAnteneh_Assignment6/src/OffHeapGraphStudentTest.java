@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class OffHeapGraphStudentTest {
+	private GraphInterface<Town,Road> graph;
+	private Town[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		 graph = new OffHeapGraph();
+		  town = new Town[12];
+		  
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = new Town("Town_" + i);
+			  graph.addVertex(town[i]);
+		  }
+		  
+		  graph.addEdge(town[1], town[2], 2, "Road_1");
+		  graph.addEdge(town[1], town[3], 4, "Road_2");
+		  graph.addEdge(town[1], town[5], 6, "Road_3");
+		  graph.addEdge(town[3], town[7], 1, "Road_4");
+		  graph.addEdge(town[3], town[8], 2, "Road_5");
+		  graph.addEdge(town[4], town[8], 3, "Road_6");
+		  graph.addEdge(town[6], town[9], 3, "Road_7");
+		  graph.addEdge(town[9], town[10], 4, "Road_8");
+		  graph.addEdge(town[8], town[10], 2, "Road_9");
+		  graph.addEdge(town[5], town[10], 5, "Road_10");
+		  graph.addEdge(town[10], town[11], 3, "Road_11");
+		  graph.addEdge(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		assertEquals(12, graph.edgeSet().size());
+		assertEquals(new Road(town[2], town[11],6, "Road_12"), graph.getEdge(town[2], town[11]));
+		assertEquals("Road_12", graph.getEdge(town[11], town[2]).getName());
+		assertEquals(false, graph.addVertex(new Town("Town_1")));
+		assertEquals(4, graph.edgesOf(town[10]).size());
+		graph.removeEdge(town[2], town[11], 6, "Road_12");
+		assertEquals(false, graph.containsEdge(town[11], town[2]));
+		assertEquals(true, graph.removeVertex(town[10]));
+		assertEquals(false, graph.containsVertex(town[10]));
+		assertEquals(7, graph.edgeSet().size());
+		assertEquals(10, graph.vertexSet().size());
+		assertTrue(graph.edgesOf(town[11]).isEmpty());
+		assertEquals(true, graph.addVertex(town[10]));
+		assertEquals(0, graph.edgesOf(town[10]).size());
+	}
+
+	@Test
+	public void testContainsAndUnnamedRoads() {
+		Road road = graph.getEdge(town[1], town[2]);
+		assertTrue(graph.edgeSet().contains(road));
+		assertTrue(graph.edgesOf(town[2]).contains(road));
+		assertTrue(graph.edgesOf(town[1]).contains(new Road(town[2], town[1], "Other")));
+		assertFalse(graph.edgesOf(town[1]).contains(graph.getEdge(town[6], town[9])));
+		graph.addEdge(town[4], town[6], 1, null);
+		assertNull(graph.getEdge(town[6], town[4]).getName());
+		assertEquals("Town_8 via Road_6 to Town_4 3 mi", graph.shortestPath(town[8], town[6]).get(0));
+		assertEquals("Town_4 via null to Town_6 1 mi", graph.shortestPath(town[8], town[6]).get(1));
+		assertEquals(13, graph.edgeSet().size());
+		assertNull(graph.removeEdge(town[4], town[6], 1, null));
+		assertNull(graph.removeEdge(town[4], town[6], 1, "Any").getName());
+		assertFalse(graph.containsEdge(town[4], town[6]));
+	}
+
+	@Test
+	public void testShortestPath() {
+		ArrayList<String> path = graph.shortestPath(town[1], town[11]);
+		  assertEquals("Town_1 via Road_1 to Town_2 2 mi",path.get(0).trim());
+		  assertEquals("Town_2 via Road_12 to Town_11 6 mi",path.get(1).trim());
+		path = graph.shortestPath(town[11], town[6]);
+		  assertEquals("Town_11 via Road_11 to Town_10 3 mi",path.get(0).trim());
+		  assertEquals("Town_10 via Road_8 to Town_9 4 mi",path.get(1).trim());
+		  assertEquals("Town_9 via Road_7 to Town_6 3 mi",path.get(2).trim());
+		graph.dijkstraShortestPath(town[1]);
+		OffHeapGraph offHeap = (OffHeapGraph) graph;
+		graph.shortestPath(town[4], town[6]);
+		assertEquals(15, offHeap.getLastDistance(town[6]));
+		graph.removeVertex(town[9]);
+		assertEquals(OffHeapGraph.NO_ROUTE, offHeap.getLastDistance(town[6]));
+		assertTrue(offHeap.offHeapBytes() > 0);
+	}
+}
@@ -0,0 +1,109 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable run of bytes held outside the Java heap in direct ByteBuffers, and
+ * addressed by long offsets so it can pass 2 GB.
+ *
+ * The bytes live in pages of PAGE bytes. Only the last page is ever smaller; it
+ * starts small and doubles, so a small store costs little. Ints and longs are read
+ * and written in native byte order and must sit at offsets that are a multiple of
+ * their size, which keeps every one of them inside a single page. New bytes are
+ * zero.
+ *
+ * Direct buffers are limited by -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size. A store larger than the heap therefore needs that flag set
+ * higher, or ensure fails with an OutOfMemoryError.
+ */
+final class OffHeapStore {
+
+	private static final int PAGE_BITS = 24;
+	private static final int PAGE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE - 1;
+	private static final int FIRST_PAGE = 4096;
+
+	private ByteBuffer[] pages = new ByteBuffer[0];
+	private long capacity;
+
+	/**
+	 * this method grows the store until it holds at least a number of bytes
+	 * @param bytes the number of bytes needed
+	 */
+	void ensure(long bytes)
+	{
+		while(capacity < bytes)
+		{
+			int last = pages.length - 1;
+			if(last >= 0 && pages[last].capacity() < PAGE)
+			{
+				long wanted = bytes - (long) last * PAGE;
+				int size = (int) Math.min(PAGE, (Math.max(wanted, 2L * pages[last].capacity()) + 7) & ~7L);
+				ByteBuffer grown = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+				pages[last].clear();
+				grown.put(pages[last]);
+				pages[last] = grown;
+			}
+			else
+			{
+				int size = (int) Math.min(PAGE, (Math.max(FIRST_PAGE, bytes - capacity) + 7) & ~7L);
+				pages = Arrays.copyOf(pages, pages.length + 1);
+				pages[last + 1] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+			}
+			capacity = (long) (pages.length - 1) * PAGE + pages[pages.length - 1].capacity();
+		}
+	}
+
+	/**
+	 * this method returns how many bytes the store has allocated
+	 * @return the capacity in bytes
+	 */
+	long capacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * this method sets every byte of the store back to zero
+	 */
+	void clear()
+	{
+		for(ByteBuffer page : pages)
+		{
+			for(int k = 0; k < page.capacity(); k += Long.BYTES)
+			{
+				page.putLong(k, 0);
+			}
+		}
+	}
+
+	int getInt(long offset)
+	{
+		return pages[(int) (offset >>> PAGE_BITS)].getInt((int) offset & PAGE_MASK);
+	}
+
+	void putInt(long offset, int value)
+	{
+		pages[(int) (offset >>> PAGE_BITS)].putInt((int) offset & PAGE_MASK, value);
+	}
+
+	long getLong(long offset)
+	{
+		return pages[(int) (offset >>> PAGE_BITS)].getLong((int) offset & PAGE_MASK);
+	}
+
+	void putLong(long offset, long value)
+	{
+		pages[(int) (offset >>> PAGE_BITS)].putLong((int) offset & PAGE_MASK, value);
+	}
+
+	byte get(long offset)
+	{
+		return pages[(int) (offset >>> PAGE_BITS)].get((int) offset & PAGE_MASK);
+	}
+
+	void put(long offset, byte value)
+	{
+		pages[(int) (offset >>> PAGE_BITS)].put((int) offset & PAGE_MASK, value);
+	}
+}
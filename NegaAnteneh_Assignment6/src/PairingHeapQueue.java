@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A pairing heap whose nodes live in parallel int arrays instead of objects.
+ * Adding is a single link with the root; removing the minimum pairs up the
+ * root's children left to right and then links the pairs right to left.
+ *
+ * Node slots are handed out in order and all reclaimed at once whenever the heap
+ * becomes empty, which Dijkstra's search does at most once at the end.
+ */
+public class PairingHeapQueue implements IntPriorityQueue {
+
+	private static final int NONE = -1;
+
+	private int[] key = new int[16];
+	private int[] item = new int[16];
+	private int[] child = new int[16];
+	private int[] sibling = new int[16];
+	private int[] pairs = new int[16];
+	private int root = NONE;
+	private int used;
+	private int size;
+
+	@Override
+	public void add(int priority, int item)
+	{
+		if(used == key.length)
+		{
+			int capacity = used * 2;
+			key = Arrays.copyOf(key, capacity);
+			this.item = Arrays.copyOf(this.item, capacity);
+			child = Arrays.copyOf(child, capacity);
+			sibling = Arrays.copyOf(sibling, capacity);
+		}
+		int node = used++;
+		key[node] = priority;
+		this.item[node] = item;
+		child[node] = NONE;
+		sibling[node] = NONE;
+		root = link(root, node);
+		size++;
+	}
+
+	@Override
+	public int peekPriority()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		return key[root];
+	}
+
+	@Override
+	public int poll()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		int top = root;
+		root = mergePairs(child[top]);
+		if(--size == 0)
+		{
+			used = 0;
+		}
+		return item[top];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * this method makes the root with the larger key the first child of the other
+	 * @return the new root
+	 */
+	private int link(int a, int b)
+	{
+		if(a == NONE)
+		{
+			return b;
+		}
+		if(key[b] < key[a])
+		{
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		sibling[b] = child[a];
+		child[a] = b;
+		return a;
+	}
+
+	/**
+	 * this method merges a list of siblings into one tree in two passes
+	 * @return the root of the merged tree
+	 */
+	private int mergePairs(int first)
+	{
+		int count = 0;
+		while(first != NONE)
+		{
+			int a = first;
+			int b = sibling[a];
+			first = b == NONE ? NONE : sibling[b];
+			sibling[a] = NONE;
+			if(b != NONE)
+			{
+				sibling[b] = NONE;
+			}
+			if(count == pairs.length)
+			{
+				pairs = Arrays.copyOf(pairs, count * 2);
+			}
+			pairs[count++] = b == NONE ? a : link(a, b);
+		}
+		int merged = NONE;
+		while(count > 0)
+		{
+			merged = link(merged, pairs[--count]);
+		}
+		return merged;
+	}
+}
@@ -0,0 +1,104 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The shortest path trees of a Graph, keyed by source town ID, kept within a
+ * memory budget by evicting the least recently used tree first.
+ *
+ * Every lookup carries the graph's current version. When it differs from the
+ * version the cached trees were grown in, they are all dropped, so a change to
+ * the graph never serves a stale route.
+ */
+class PathTreeCache {
+
+	private final LinkedHashMap<Integer, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Long> charged = new HashMap<>();
+	private long budget;
+	private long used;
+	private long version = -1;
+
+	/**
+	 * Constructor
+	 * @param budget the most memory, in bytes, the cached trees may hold
+	 */
+	PathTreeCache(long budget)
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * this method returns the cached tree of a source town
+	 * @param source the ID of the source town
+	 * @param graphVersion the graph's current version
+	 * @return the tree, or null if none is cached for this version
+	 */
+	ShortestPathTree get(int source, long graphVersion)
+	{
+		if(graphVersion != version)
+		{
+			clear();
+			version = graphVersion;
+		}
+		return trees.get(source);
+	}
+
+	/**
+	 * this method caches a tree, or updates the memory charged for it after it grew,
+	 * and evicts the least recently used trees until the budget is met
+	 * @param tree the tree to cache
+	 */
+	void put(ShortestPathTree tree)
+	{
+		Long before = charged.get(tree.getSource());
+		long size = tree.bytes();
+		used += size - (before == null ? 0 : before);
+		charged.put(tree.getSource(), size);
+		trees.put(tree.getSource(), tree);
+
+		Iterator<Map.Entry<Integer, ShortestPathTree>> eldest;
+		eldest = trees.entrySet().iterator();
+		while(used > budget && eldest.hasNext())
+		{
+			int source = eldest.next().getKey();
+			eldest.remove();
+			used -= charged.remove(source);
+		}
+	}
+
+	/**
+	 * this method changes the memory budget, evicting trees if they no longer fit
+	 * @param budget the most memory, in bytes, the cached trees may hold
+	 */
+	void setBudget(long budget)
+	{
+		this.budget = budget;
+		while(used > budget && !trees.isEmpty())
+		{
+			int source = trees.keySet().iterator().next();
+			trees.remove(source);
+			used -= charged.remove(source);
+		}
+	}
+
+	/**
+	 * this method returns the number of trees cached for a graph version
+	 * @param graphVersion the graph's current version
+	 * @return the number of trees
+	 */
+	int size(long graphVersion)
+	{
+		return graphVersion == version ? trees.size() : 0;
+	}
+
+	/**
+	 * this method drops every cached tree
+	 */
+	void clear()
+	{
+		trees.clear();
+		charged.clear();
+		used = 0;
+	}
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Times Dijkstra's search on each kind of priority queue over road-like graphs:
+ * a grid of towns joined to their neighbours by roads of 1 to 30 miles, with a
+ * few long highways across it.
+ *
+ * Run with the grid side length and the number of searches, for example
+ * java QueueBenchmark 300 50
+ */
+public class QueueBenchmark {
+
+	/**
+	 * this method runs the benchmark and prints the average search time per queue
+	 * @param args the grid side length and the number of searches, both optional
+	 */
+	public static void main(String[] args)
+	{
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int searches = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+		Graph graph;
+		graph = roadGrid(side, new Random(42));
+
+		Random pick;
+		pick = new Random(7);
+
+		ArrayList<Town> sources;
+		sources = new ArrayList<>();
+		for(int n = 0; n < searches; n++)
+		{
+			sources.add(new Town("Town_" + pick.nextInt(side * side)));
+		}
+
+		System.out.println(side * side + " towns, " + graph.edgeSet().size() + " roads, " + searches + " searches");
+		for(QueueKind kind : QueueKind.values())
+		{
+			graph.setQueueKind(kind);
+
+			// warm up so the JIT has compiled the search before it is timed
+			for(int n = 0; n < Math.min(5, searches); n++)
+			{
+				graph.distancesFrom(graph.idOf(sources.get(n)));
+			}
+
+			long checksum = 0;
+			long start = System.nanoTime();
+			for(Town source : sources)
+			{
+				for(int d : graph.distancesFrom(graph.idOf(source)))
+				{
+					checksum += d == Graph.UNREACHED ? 0 : d;
+				}
+			}
+			long elapsed = System.nanoTime() - start;
+			System.out.printf("%-13s %8.2f ms per search   checksum %d%n", kind, elapsed / 1e6 / searches, checksum);
+		}
+	}
+
+	/**
+	 * this method builds a side by side grid of towns with random road lengths and
+	 * one highway for every fifty towns
+	 * @param side the number of towns along each side
+	 * @param random the source of road lengths
+	 * @return the graph
+	 */
+	private static Graph roadGrid(int side, Random random)
+	{
+		Graph graph;
+		graph = new Graph();
+
+		Town[] towns;
+		towns = new Town[side * side];
+		for(int v = 0; v < towns.length; v++)
+		{
+			towns[v] = new Town("Town_" + v);
+			graph.addVertex(towns[v]);
+		}
+		for(int row = 0; row < side; row++)
+		{
+			for(int column = 0; column < side; column++)
+			{
+				int v = row * side + column;
+				if(column + 1 < side)
+				{
+					graph.addEdge(towns[v], towns[v + 1], 1 + random.nextInt(30), "Road_" + v + "E");
+				}
+				if(row + 1 < side)
+				{
+					graph.addEdge(towns[v], towns[v + side], 1 + random.nextInt(30), "Road_" + v + "S");
+				}
+			}
+		}
+		for(int n = 0; n < towns.length / 50; n++)
+		{
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			int miles = Math.abs(a / side - b / side) + Math.abs(a % side - b % side);
+			graph.addEdge(towns[a], towns[b], 5 * miles, "Highway_" + n);
+		}
+		return graph;
+	}
+}
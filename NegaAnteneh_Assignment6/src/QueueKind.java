@@ -0,0 +1,48 @@
+/**
+ * The priority queues the shortest-path searches of Graph can run on.
+ */
+public enum QueueKind {
+
+	/**
+	 * A binary heap of priority and item packed into one long
+	 */
+	BINARY_HEAP,
+
+	/**
+	 * A pairing heap, with constant time insertion
+	 */
+	PAIRING_HEAP,
+
+	/**
+	 * Dial's bucket queue, with one bucket per distance up to the longest road. A
+	 * road too long for DialQueue.MAX_BUCKETS buckets makes searches use a
+	 * RADIX_HEAP instead.
+	 */
+	DIAL,
+
+	/**
+	 * A radix heap, with one bucket per bit of the distance
+	 */
+	RADIX_HEAP;
+
+	/**
+	 * this method makes an empty queue of this kind, except that DIAL gives a radix
+	 * heap when the longest road needs more than DialQueue.MAX_BUCKETS buckets
+	 * @param maxWeight the weight of the longest road the search may relax
+	 * @return the queue
+	 */
+	public IntPriorityQueue create(int maxWeight)
+	{
+		switch(this)
+		{
+			case PAIRING_HEAP:
+				return new PairingHeapQueue();
+			case DIAL:
+				return maxWeight < DialQueue.MAX_BUCKETS ? new DialQueue(maxWeight) : new RadixHeapQueue();
+			case RADIX_HEAP:
+				return new RadixHeapQueue();
+			default:
+				return new BinaryHeapQueue();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A radix heap for monotone searches. Items are filed by the highest bit in which
+ * their priority differs from the last priority removed, giving 33 buckets in
+ * all; bucket 0 holds the items tied with it. When bucket 0 runs dry the lowest
+ * non-empty bucket is emptied into the buckets below it around its own minimum.
+ * Each item moves down at most 32 times, independent of the road weights.
+ */
+public class RadixHeapQueue implements IntPriorityQueue {
+
+	private static final int BUCKETS = 33;
+
+	private final long[][] buckets = new long[BUCKETS][];
+	private final int[] bucketSizes = new int[BUCKETS];
+	private int last;
+	private int size;
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the priority is below the last one removed
+	 */
+	@Override
+	public void add(int priority, int item)
+	{
+		if(priority < last)
+		{
+			throw new IllegalArgumentException();
+		}
+		file(((long) priority << 32) | (item & 0xFFFFFFFFL));
+		size++;
+	}
+
+	@Override
+	public int peekPriority()
+	{
+		refill();
+		return last;
+	}
+
+	@Override
+	public int poll()
+	{
+		refill();
+		size--;
+		return (int) buckets[0][--bucketSizes[0]];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * this method makes sure bucket 0 holds the items with the smallest priority
+	 */
+	private void refill()
+	{
+		if(size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		if(bucketSizes[0] > 0)
+		{
+			return;
+		}
+		int b = 1;
+		while(bucketSizes[b] == 0)
+		{
+			b++;
+		}
+		long[] entries = buckets[b];
+		int count = bucketSizes[b];
+		long min = entries[0];
+		for(int k = 1; k < count; k++)
+		{
+			min = Math.min(min, entries[k]);
+		}
+		last = (int) (min >>> 32);
+		bucketSizes[b] = 0;
+		for(int k = 0; k < count; k++)
+		{
+			file(entries[k]);
+		}
+	}
+
+	/**
+	 * this method puts an entry into the bucket for its priority
+	 */
+	private void file(long entry)
+	{
+		int priority = (int) (entry >>> 32);
+		int b = priority == last ? 0 : 32 - Integer.numberOfLeadingZeros(priority ^ last);
+		if(buckets[b] == null)
+		{
+			buckets[b] = new long[4];
+		}
+		else if(bucketSizes[b] == buckets[b].length)
+		{
+			buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+		}
+		buckets[b][bucketSizes[b]++] = entry;
+	}
+}
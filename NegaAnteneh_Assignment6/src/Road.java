@@ -5,6 +5,8 @@ public class Road implements Comparable<Road>{
 	private Town B;
 	private String roadName;
 	private int distance;
+	private int sourceId = TownIndex.MISSING;
+	private int destinationId = TownIndex.MISSING;
 
 	/**
 	 * Constructor
@@ -18,6 +20,17 @@ public class Road implements Comparable<Road>{
 		roadName = name;
 	}
 
+	/**
+	 * Constructor used by a graph, which also records the IDs it gave both towns
+	 * @param source, destination, degrees, name, sourceId, destinationId
+	 */
+	Road(Town source, Town destination, int degrees, String name, int sourceId, int destinationId)
+	{
+		this(source, destination, degrees, name);
+		this.sourceId = sourceId;
+		this.destinationId = destinationId;
+	}
+
 	/**
 	 * Constructor with weight preset to 1
 	 * @param source, destination, name
@@ -51,6 +64,36 @@ public class Road implements Comparable<Road>{
 		 return A.getName().equals(town.getName()) || B.getName().equals(town.getName());
 	 }
 
+	 /**
+	  * this method returns the town at the other end of the road from the given town
+	  * @param town
+	  * @return the destination if town is the source, the source otherwise
+	  */
+	 public Town getOpposite(Town town)
+	 {
+		 return A.equals(town) ? B : A;
+	 }
+
+	 /**
+	  * this method returns the graph ID of the town at the other end of the road
+	  * @param id the graph ID of one end
+	  * @return the destination's ID if id is the source's, the source's ID otherwise
+	  */
+	 int getOppositeId(int id)
+	 {
+		 return sourceId == id ? destinationId : sourceId;
+	 }
+
+	 /**
+	  * this method returns the end of the road with a graph ID
+	  * @param id the graph ID of one end
+	  * @return the source if id is the source's, the destination otherwise
+	  */
+	 Town getTownById(int id)
+	 {
+		 return sourceId == id ? A : B;
+	 }
+
 	 /**
 	  * this method returns true if each of the ends of the road r is the 
 	  * same as the ends of this road. Remember that a road that goes from point A to point B is 
@@ -77,6 +120,17 @@ public class Road implements Comparable<Road>{
 		 Road road = (Road) r;
 		 return (this.A.equals(road.A) && this.B.equals(road.B)) || (this.A.equals(road.B) && this.B.equals(road.A));
 	 }
+
+	 /**
+	  * this method returns a hash code that agrees with equals: it depends only on the
+	  * two towns, whichever way round they are
+	  * @return the hash code
+	  */
+	 @Override
+	 public int hashCode()
+	 {
+		 return A.hashCode() + B.hashCode();
+	 }
 	 
 	 /**
 	  * This method is a basic to string method.
@@ -0,0 +1,391 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads a road file into a Graph. Each line reads
+ * "road name,miles;first town;second town", split at every ',' and ';' as
+ * TownGraphManager.populateTownGraph always has, with fields past the fourth ignored.
+ *
+ * The file is memory-mapped in line-aligned chunks of at most MAX_CHUNK bytes,
+ * which are parsed in parallel by scanning bytes, with no regex and no per-line
+ * String splitting. The parsed roads are then joined in file order and added to
+ * the graph with a single call to Graph.addRoads, so the result is the same as
+ * adding them one at a time and the whole load counts as one change to the graph.
+ * The file is read as UTF-8.
+ */
+final class RoadFileLoader {
+
+	private static final long MIN_CHUNK = 1L << 20;
+	private static final long MAX_CHUNK = 64L << 20;
+	private static final int SEPARATORS = 3;
+	private static final int CHECK_INTERRUPT = 4095;
+
+	/**
+	 * Constructor
+	 */
+	private RoadFileLoader()
+	{
+	}
+
+	/**
+	 * this method adds every road in a file, and the towns it joins, to a graph
+	 * @param file the road file
+	 * @param graph the graph to add to
+	 * @param pool the pool to parse chunks on
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws IOException if the file cannot be read or a line is malformed; the
+	 * graph is unchanged in that case
+	 */
+	static void load(File file, Graph graph, ForkJoinPool pool) throws FileNotFoundException, IOException
+	{
+		load(file, graph, pool, fraction -> { });
+	}
+
+	/**
+	 * this method adds every road in a file, and the towns it joins, to a graph,
+	 * reporting progress as the chunks are parsed. Interrupting the calling thread
+	 * stops the load before anything is added. Once the roads are being added the
+	 * interrupt is no longer checked, so the load then finishes and returns normally.
+	 * @param file the road file
+	 * @param graph the graph to add to
+	 * @param pool the pool to parse chunks on
+	 * @param progress given the fraction of the file parsed so far, from the pool's
+	 * threads, each time a chunk is done
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws InterruptedIOException if the calling thread was interrupted; the
+	 * graph is unchanged in that case
+	 * @throws IOException if the file cannot be read or a line is malformed; the
+	 * graph is unchanged in that case
+	 */
+	static void load(File file, Graph graph, ForkJoinPool pool, DoubleConsumer progress) throws FileNotFoundException, IOException
+	{
+		Thread caller;
+		caller = Thread.currentThread();
+
+		try(FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel())
+		{
+			long size;
+			size = channel.size();
+
+			List<long[]> ranges;
+			ranges = split(channel, pool.getParallelism());
+
+			AtomicLong parsed;
+			parsed = new AtomicLong();
+
+			List<Chunk> chunks;
+			try
+			{
+				chunks = pool.submit(() -> ranges.parallelStream().map(range -> {
+					Chunk chunk = parse(channel, range, caller);
+					progress.accept((double) parsed.addAndGet(range[1] - range[0]) / size);
+					return chunk;
+				}).collect(Collectors.toList())).join();
+			}
+			catch(UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+			Chunk all;
+			all = join(chunks);
+
+			// the last chance to stop: addRoads is not interrupted, so it adds all or nothing
+			if(caller.isInterrupted())
+			{
+				throw new InterruptedIOException();
+			}
+			graph.addRoads(all.from, all.to, all.weights, all.names, all.size);
+		}
+		catch(IOException e)
+		{
+			// an interrupt also closes the channel, which surfaces as some other IOException
+			if(caller.isInterrupted() && !(e instanceof InterruptedIOException))
+			{
+				throw new InterruptedIOException();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * this method cuts a file into ranges that each start at the beginning of a line
+	 * @param channel the file
+	 * @param parallelism the number of threads that will parse the ranges
+	 * @return the {start, end} byte offsets of each range, in file order
+	 */
+	private static List<long[]> split(FileChannel channel, int parallelism) throws IOException
+	{
+		long size;
+		size = channel.size();
+
+		long target;
+		target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (4L * parallelism) + 1));
+
+		ByteBuffer probe;
+		probe = ByteBuffer.allocate(4096);
+
+		List<long[]> ranges;
+		ranges = new ArrayList<>();
+		long start = 0;
+		while(start < size)
+		{
+			long end = Math.min(size, start + target);
+			// move the cut just past the next newline so no line is split
+			boolean aligned = end == size;
+			while(!aligned)
+			{
+				probe.clear();
+				int read = channel.read(probe, end);
+				if(read <= 0)
+				{
+					end = size;
+					break;
+				}
+				for(int k = 0; k < read && !aligned; k++)
+				{
+					if(probe.get(k) == '\n')
+					{
+						aligned = true;
+						end += k + 1;
+					}
+				}
+				if(!aligned)
+				{
+					end += read;
+					aligned = end >= size;
+					end = Math.min(end, size);
+				}
+			}
+			ranges.add(new long[] {start, end});
+			start = end;
+		}
+		return ranges;
+	}
+
+	/**
+	 * this method parses the lines in one range of a file
+	 * @param channel the file
+	 * @param range the {start, end} byte offsets of the range
+	 * @param caller the thread the load was started on, checked now and then for an interrupt
+	 * @return the roads found
+	 * @throws UncheckedIOException if the range cannot be mapped or holds a malformed
+	 * line, or the caller was interrupted
+	 */
+	private static Chunk parse(FileChannel channel, long[] range, Thread caller)
+	{
+		MappedByteBuffer bytes;
+		try
+		{
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+
+		Chunk chunk;
+		chunk = new Chunk();
+
+		// the same town and road names turn up on many lines; keep one String per name
+		HashMap<String, String> seen;
+		seen = new HashMap<>();
+
+		byte[] field;
+		field = new byte[256];
+
+		int[] cuts;
+		cuts = new int[SEPARATORS];
+
+		int limit;
+		limit = bytes.limit();
+
+		int line;
+		line = 0;
+		while(line < limit)
+		{
+			if((chunk.size & CHECK_INTERRUPT) == 0 && caller.isInterrupted())
+			{
+				throw new UncheckedIOException(new InterruptedIOException());
+			}
+			int end = line;
+			int found = 0;
+			while(end < limit && bytes.get(end) != '\n')
+			{
+				byte b = bytes.get(end);
+				if((b == ',' || b == ';') && found < SEPARATORS)
+				{
+					cuts[found++] = end;
+				}
+				end++;
+			}
+			int next = end + 1;
+			if(end > line && bytes.get(end - 1) == '\r')
+			{
+				end--;
+			}
+			if(end > line)
+			{
+				if(found < SEPARATORS)
+				{
+					throw new UncheckedIOException(new IOException("Malformed road at byte " + (range[0] + line)));
+				}
+				// a fourth separator ends the second town's name early
+				int townEnd = cuts[2] + 1;
+				while(townEnd < end && bytes.get(townEnd) != ',' && bytes.get(townEnd) != ';')
+				{
+					townEnd++;
+				}
+				field = fit(field, end - line);
+				chunk.add(seen.computeIfAbsent(text(bytes, line, cuts[0], field), name -> name),
+					weight(bytes, cuts[0] + 1, cuts[1], range[0] + line),
+					seen.computeIfAbsent(text(bytes, cuts[1] + 1, cuts[2], field), name -> name),
+					seen.computeIfAbsent(text(bytes, cuts[2] + 1, townEnd, field), name -> name));
+			}
+			line = next;
+		}
+		return chunk;
+	}
+
+	/**
+	 * this method puts the roads of every chunk into one chunk, in order
+	 * @param chunks the chunks in file order
+	 * @return the joined chunk, or the only chunk if there is just one
+	 */
+	private static Chunk join(List<Chunk> chunks)
+	{
+		if(chunks.size() == 1)
+		{
+			return chunks.get(0);
+		}
+		int total = 0;
+		for(Chunk chunk : chunks)
+		{
+			total += chunk.size;
+		}
+		Chunk all;
+		all = new Chunk(total);
+		for(Chunk chunk : chunks)
+		{
+			System.arraycopy(chunk.names, 0, all.names, all.size, chunk.size);
+			System.arraycopy(chunk.weights, 0, all.weights, all.size, chunk.size);
+			System.arraycopy(chunk.from, 0, all.from, all.size, chunk.size);
+			System.arraycopy(chunk.to, 0, all.to, all.size, chunk.size);
+			all.size += chunk.size;
+		}
+		return all;
+	}
+
+	private static byte[] fit(byte[] field, int length)
+	{
+		return field.length >= length ? field : new byte[Math.max(length, field.length * 2)];
+	}
+
+	private static String text(MappedByteBuffer bytes, int from, int to, byte[] field)
+	{
+		for(int k = from; k < to; k++)
+		{
+			field[k - from] = bytes.get(k);
+		}
+		return new String(field, 0, to - from, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * this method reads a road length, accepting what Integer.parseInt accepts for
+	 * plain decimal numbers as long as it is not negative, as Graph requires
+	 * @throws UncheckedIOException if the field is not a number that fits in an int,
+	 * or is negative
+	 */
+	private static int weight(MappedByteBuffer bytes, int from, int to, long lineStart)
+	{
+		boolean negative = from < to && bytes.get(from) == '-';
+		int k = negative || (from < to && bytes.get(from) == '+') ? from + 1 : from;
+		if(k == to)
+		{
+			throw new UncheckedIOException(new IOException("Malformed road length at byte " + lineStart));
+		}
+		long value = 0;
+		for(; k < to; k++)
+		{
+			int digit = bytes.get(k) - '0';
+			value = value * 10 + digit;
+			if(digit < 0 || digit > 9 || value > (long) Integer.MAX_VALUE + 1)
+			{
+				throw new UncheckedIOException(new IOException("Malformed road length at byte " + lineStart));
+			}
+		}
+		value = negative ? -value : value;
+		if(value > Integer.MAX_VALUE)
+		{
+			throw new UncheckedIOException(new IOException("Malformed road length at byte " + lineStart));
+		}
+		if(value < 0)
+		{
+			throw new UncheckedIOException(new IOException("Negative road length at byte " + lineStart));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * The roads parsed from one range, as parallel arrays.
+	 */
+	private static class Chunk {
+
+		private String[] names;
+		private int[] weights;
+		private String[] from;
+		private String[] to;
+		private int size;
+
+		/**
+		 * Constructor
+		 */
+		Chunk()
+		{
+			this(64);
+		}
+
+		/**
+		 * Constructor
+		 * @param capacity the number of roads to make room for
+		 */
+		Chunk(int capacity)
+		{
+			names = new String[capacity];
+			weights = new int[capacity];
+			from = new String[capacity];
+			to = new String[capacity];
+		}
+
+		void add(String name, int weight, String town1, String town2)
+		{
+			if(size == names.length)
+			{
+				names = Arrays.copyOf(names, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+				from = Arrays.copyOf(from, size * 2);
+				to = Arrays.copyOf(to, size * 2);
+			}
+			names[size] = name;
+			weights[size] = weight;
+			from[size] = town1;
+			to[size] = town2;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of routes between pairs of towns, keyed by the ordered pair of
+ * town names, which evicts the least recently used route once it is full.
+ *
+ * Roads are undirected, so a route cached for (town1, town2) also answers
+ * (town2, town1) by walking it backwards. Every lookup carries the graph's
+ * current version, and all routes are dropped when it differs from the version
+ * they were found in.
+ */
+public class RouteCache {
+
+	private final LinkedHashMap<Map.Entry<String, String>, ArrayList<Road>> routes = new LinkedHashMap<>(16, 0.75f, true);
+	private int capacity;
+	private long version = -1;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructor
+	 * @param capacity the most routes to keep; 0 keeps none
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public RouteCache(int capacity)
+	{
+		setCapacity(capacity);
+	}
+
+	/**
+	 * this method returns the cached route between two towns, walking the route of
+	 * the reverse pair backwards if only that one is cached
+	 * @param town1 name of the starting town
+	 * @param town2 name of the ending town
+	 * @param graphVersion the graph's current version
+	 * @return the roads of the route in travel order, or null if neither pair is cached
+	 */
+	public ArrayList<Road> get(String town1, String town2, long graphVersion)
+	{
+		if(graphVersion != version)
+		{
+			routes.clear();
+			version = graphVersion;
+		}
+
+		ArrayList<Road> route;
+		route = routes.get(new AbstractMap.SimpleImmutableEntry<>(town1, town2));
+		if(route != null)
+		{
+			hits++;
+			return new ArrayList<>(route);
+		}
+
+		route = routes.get(new AbstractMap.SimpleImmutableEntry<>(town2, town1));
+		if(route != null)
+		{
+			hits++;
+			ArrayList<Road> reversed = new ArrayList<>(route.size());
+			for(int k = route.size() - 1; k >= 0; k--)
+			{
+				Road r = route.get(k);
+				reversed.add(new Road(r.getDestination(), r.getSource(), r.getWeight(), r.getName(), TownIndex.MISSING, TownIndex.MISSING));
+			}
+			return reversed;
+		}
+
+		misses++;
+		return null;
+	}
+
+	/**
+	 * this method caches the route between two towns, evicting the least recently
+	 * used routes if the cache is full
+	 * @param town1 name of the starting town
+	 * @param town2 name of the ending town
+	 * @param route the roads of the route in travel order
+	 */
+	public void put(String town1, String town2, ArrayList<Road> route)
+	{
+		if(capacity == 0)
+		{
+			return;
+		}
+		routes.put(new AbstractMap.SimpleImmutableEntry<>(town1, town2), new ArrayList<>(route));
+		trim();
+	}
+
+	/**
+	 * this method changes the number of routes kept, evicting routes if they no
+	 * longer fit
+	 * @param capacity the most routes to keep; 0 keeps none
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public void setCapacity(int capacity)
+	{
+		if(capacity < 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.capacity = capacity;
+		trim();
+	}
+
+	/**
+	 * this method returns the number of routes kept at most
+	 * @return the capacity
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * this method returns the number of routes cached
+	 * @return the number of routes
+	 */
+	public int size()
+	{
+		return routes.size();
+	}
+
+	/**
+	 * this method returns the number of lookups answered from the cache
+	 * @return the hit count
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * this method returns the number of lookups the cache could not answer
+	 * @return the miss count
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * this method returns the number of routes dropped to make room. Routes
+	 * dropped because the graph changed are not counted.
+	 * @return the eviction count
+	 */
+	public long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * this method drops every cached route, keeping the counts
+	 */
+	public void clear()
+	{
+		routes.clear();
+	}
+
+	private void trim()
+	{
+		Iterator<Map.Entry<String, String>> eldest;
+		eldest = routes.keySet().iterator();
+		while(routes.size() > capacity && eldest.hasNext())
+		{
+			eldest.next();
+			eldest.remove();
+			evictions++;
+		}
+	}
+}
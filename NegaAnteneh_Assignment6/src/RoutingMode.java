@@ -0,0 +1,37 @@
+/**
+ * The search engines TownGraphManager can use to answer getPath.
+ */
+public enum RoutingMode {
+	
+	/**
+	 * Dijkstra's search from the first town, stopping once the second town is settled
+	 */
+	DIJKSTRA,
+	
+	/**
+	 * Dijkstra's search from both towns at once, stopping where the two searches meet
+	 */
+	BIDIRECTIONAL,
+	
+	/**
+	 * Upward search over a Contraction Hierarchy, built on first use after the graph changes
+	 */
+	CONTRACTION_HIERARCHY,
+	
+	/**
+	 * A* search guided by landmark distances, rebuilt on first use after the graph changes
+	 */
+	LANDMARKS,
+	
+	/**
+	 * Route expanded from a hub-label index, built on first use after the graph changes
+	 */
+	HUB_LABELS,
+	
+	/**
+	 * Dijkstra's search over a compressed sparse row snapshot of the graph, frozen on
+	 * first use after the graph changes. Suits graphs that are queried far more often
+	 * than they are edited.
+	 */
+	FROZEN
+}
@@ -0,0 +1,174 @@
+import java.util.Arrays;
+
+/**
+ * The Dijkstra's search tree grown from one source town of a Graph, kept so that
+ * later queries from the same town only have to walk it back.
+ *
+ * The search is resumable: it settles towns only until the town asked for is
+ * settled, and keeps its queue so a later question about a farther town carries
+ * on where it stopped instead of starting over. Once every reachable town is
+ * settled the queue is dropped.
+ *
+ * A tree is only valid for the graph version it was grown in; PathTreeCache
+ * throws trees away when the graph changes.
+ */
+class ShortestPathTree {
+
+	private final Graph graph;
+	private final int source;
+	private final int[] dist;
+	private final Road[] prev;
+	private final boolean[] settled;
+	private IntPriorityQueue queue;
+	private Town[] towns;
+
+	/**
+	 * Constructor, starts a search that has settled nothing yet
+	 * @param graph the graph to search
+	 * @param source the ID of the town to search from
+	 */
+	ShortestPathTree(Graph graph, int source)
+	{
+		this.graph = graph;
+		this.source = source;
+
+		int n;
+		n = graph.idBound();
+
+		dist = new int[n];
+		prev = new Road[n];
+		settled = new boolean[n];
+		Arrays.fill(dist, Graph.UNREACHED);
+
+		queue = graph.newQueue();
+		dist[source] = 0;
+		queue.add(0, source);
+	}
+
+	/**
+	 * this method returns the ID of the town the tree grows from
+	 * @return the source ID
+	 */
+	int getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * this method grows the tree until a town is settled or nothing more can be
+	 * reached
+	 * @param target the ID of the town wanted
+	 * @return true if the town can be reached from the source
+	 */
+	boolean settle(int target)
+	{
+		while(!settled[target] && queue != null)
+		{
+			settleNext();
+		}
+		return settled[target];
+	}
+
+	/**
+	 * this method grows the tree until every reachable town is settled
+	 */
+	void settleAll()
+	{
+		while(queue != null)
+		{
+			settleNext();
+		}
+	}
+
+	/**
+	 * this method returns the best known distance of every town, indexed by ID.
+	 * Callers must not modify the array.
+	 * @return the distances, Graph.UNREACHED for towns not reached yet
+	 */
+	int[] distances()
+	{
+		return dist;
+	}
+
+	/**
+	 * this method returns the road used to reach every town, indexed by ID.
+	 * Callers must not modify the array.
+	 * @return the roads, null for the source and towns not reached yet
+	 */
+	Road[] previous()
+	{
+		return prev;
+	}
+
+	/**
+	 * this method returns the town each ID belongs to, taken from the graph the first
+	 * time it is asked for. The tree only lives as long as the graph version it was
+	 * grown in, so every result built from it can share the array. Callers must not
+	 * modify it.
+	 * @return the towns, indexed by ID, null for IDs of removed towns
+	 */
+	Town[] towns()
+	{
+		if(towns == null)
+		{
+			towns = new Town[dist.length];
+			for(int id = 0; id < towns.length; id++)
+			{
+				towns[id] = graph.townAt(id);
+			}
+		}
+		return towns;
+	}
+
+	/**
+	 * this method estimates the heap memory the tree holds
+	 * @return the estimate in bytes
+	 */
+	long bytes()
+	{
+		// an int, a reference and a boolean per town, another reference per town once
+		// the town table is taken, and about a long per queue entry
+		return 64 + (long) dist.length * (towns == null ? 9 : 13) + (queue == null ? 0 : (long) queue.size() * 8);
+	}
+
+	/**
+	 * this method settles the nearest town waiting in the queue and relaxes the
+	 * roads touching it
+	 */
+	private void settleNext()
+	{
+		if(queue.isEmpty())
+		{
+			queue = null;
+			return;
+		}
+
+		int mDist;
+		mDist = queue.peekPriority();
+
+		int town;
+		town = queue.poll();
+
+		if(settled[town])
+		{
+			return;
+		}
+		settled[town] = true;
+
+		for(Road r : graph.touchingRoads(town))
+		{
+			int next;
+			next = r.getOppositeId(town);
+
+			int nDist;
+			nDist = mDist + r.getWeight();
+
+			if(nDist < dist[next])
+			{
+				dist[next] = nDist;
+				prev[next] = r;
+				queue.add(nDist, next);
+			}
+		}
+	}
+}
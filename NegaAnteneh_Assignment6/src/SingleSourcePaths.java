@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The result of one Dijkstra's search from a source town of a Graph, which
+ * answers the distance and route to any number of destinations without searching
+ * again.
+ *
+ * distanceTo costs one lookup of the town's ID. pathTo walks the search tree back
+ * one road at a time, so it costs the length of the route and never recurses.
+ * The answers describe the graph as it was when the search ran: the result keeps
+ * the town each ID belonged to then, so towns removed or added again afterwards
+ * are still found under the ID the search gave them. Results made from a cached
+ * ShortestPathTree share its table of towns, so asking again from the same town
+ * costs only the path reconstruction.
+ */
+public class SingleSourcePaths {
+
+	/**
+	 * The distance reported for towns with no route from the source
+	 */
+	public static final int NO_ROUTE = -1;
+
+	private final Graph graph;
+	private final Town source;
+	private final int sourceId;
+	private final int[] dist;
+	private final Road[] prev;
+	private final Town[] towns;
+	private Map<Town, Integer> ids;
+
+	/**
+	 * Constructor
+	 * @param graph the graph searched
+	 * @param source the town searched from
+	 * @param tree the settled search tree, or null if the source is not in the graph
+	 */
+	SingleSourcePaths(Graph graph, Town source, ShortestPathTree tree)
+	{
+		this(graph, source, tree == null ? TownIndex.MISSING : tree.getSource(), tree == null ? new int[0] : tree.distances(), tree == null ? new Road[0] : tree.previous(), tree == null ? new Town[0] : tree.towns());
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the graph searched
+	 * @param source the town searched from
+	 * @param sourceId the ID of the source town
+	 * @param dist the distance of every town, indexed by ID, Graph.UNREACHED if not reached
+	 * @param prev the road used to reach every town, indexed by ID
+	 */
+	SingleSourcePaths(Graph graph, Town source, int sourceId, int[] dist, Road[] prev)
+	{
+		this(graph, source, sourceId, dist, prev, new Town[dist.length]);
+		for(int id = 0; id < towns.length; id++)
+		{
+			towns[id] = graph.townAt(id);
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param graph the graph searched
+	 * @param source the town searched from
+	 * @param sourceId the ID of the source town
+	 * @param dist the distance of every town, indexed by ID, Graph.UNREACHED if not reached
+	 * @param prev the road used to reach every town, indexed by ID
+	 * @param towns the town every ID belonged to when the search ran; kept, not copied
+	 */
+	private SingleSourcePaths(Graph graph, Town source, int sourceId, int[] dist, Road[] prev, Town[] towns)
+	{
+		this.graph = graph;
+		this.source = source;
+		this.sourceId = sourceId;
+		this.dist = dist;
+		this.prev = prev;
+		this.towns = towns;
+	}
+
+	/**
+	 * this method returns the town the search started at
+	 * @return the source town
+	 */
+	public Town getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * this method returns the shortest distance from the source to a town
+	 * @param town the destination
+	 * @return the distance, or NO_ROUTE if the town cannot be reached or was not in
+	 * the graph
+	 */
+	public int distanceTo(Town town)
+	{
+		int id = find(town);
+		return id == TownIndex.MISSING ? NO_ROUTE : dist[id];
+	}
+
+	/**
+	 * this method returns whether a town can be reached from the source
+	 * @param town the destination
+	 * @return true if there is a route
+	 */
+	public boolean hasPathTo(Town town)
+	{
+		return find(town) != TownIndex.MISSING;
+	}
+
+	/**
+	 * this method returns the roads of the shortest route from the source to a town
+	 * @param town the destination
+	 * @return the roads in travel order, each facing the direction of travel, or an
+	 * empty list if there is no route or the town is the source
+	 */
+	public ArrayList<Road> routeTo(Town town)
+	{
+		int id = find(town);
+		if(id == TownIndex.MISSING)
+		{
+			return new ArrayList<>();
+		}
+		return Graph.traceRoute(sourceId, id, prev);
+	}
+
+	/**
+	 * this method returns the shortest path from the source to a town
+	 * @param town the destination
+	 * @return An arraylist of Strings that describe the path, in the same format as
+	 * Graph.shortestPath
+	 */
+	public ArrayList<String> pathTo(Town town)
+	{
+		return Graph.describe(routeTo(town));
+	}
+
+	/**
+	 * this method finds the ID a town had when the search ran
+	 * @return the ID, or MISSING if the town was not reached
+	 */
+	private int find(Town town)
+	{
+		int id = graph.idOf(town);
+		if(id < 0 || id >= towns.length || !towns[id].equals(town))
+		{
+			// the town was removed or added again since the search ran
+			id = searchedId(town);
+		}
+		if(id == TownIndex.MISSING || dist[id] == Graph.UNREACHED)
+		{
+			return TownIndex.MISSING;
+		}
+		return id;
+	}
+
+	/**
+	 * this method looks a town up among the towns the graph held when the search ran,
+	 * building the lookup table on first use
+	 * @return the ID, or MISSING if the town was not in the graph then
+	 */
+	private synchronized int searchedId(Town town)
+	{
+		if(ids == null)
+		{
+			ids = new HashMap<>();
+			for(int id = 0; id < towns.length; id++)
+			{
+				if(towns[id] != null)
+				{
+					ids.put(towns[id], id);
+				}
+			}
+		}
+		Integer id = ids.get(town);
+		return id == null ? TownIndex.MISSING : id;
+	}
+}
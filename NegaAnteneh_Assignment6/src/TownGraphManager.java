@@ -1,16 +1,26 @@
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleConsumer;
 import java.util.stream.Collectors;
 
 public class TownGraphManager implements TownGraphManagerInterface{
 	
 	private Graph graph = new Graph();
+	private RoutingMode routingMode = RoutingMode.DIJKSTRA;
+	private ContractionHierarchy hierarchy;
+	private LandmarkRouter landmarkRouter;
+	private HubLabelIndex hubLabels;
+	private CompressedGraph frozen;
+	private RouteCache routeCache = new RouteCache(0);
 
 	/**
 	 * this method Adds a road with 2 towns and a road name
@@ -18,12 +28,14 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param town2 name of town 2 (lastname, firstname)
 	 * @param roadName name of road
 	 * @return true if the road was added successfully
+	 * @throws IllegalArgumentException if weight is negative
 	 */
 	@Override
 	public boolean addRoad(String town1, String town2, int weight, String roadName) 
 	{
-		if(graph.addEdge(new Town(town1), new Town(town2), weight, roadName) != null)
+		if(graph.addEdge(town(town1), town(town2), weight, roadName) != null)
 		{
+			graphChanged();
 			return true;
 		}
 		return false;
@@ -38,7 +50,7 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public String getRoad(String town1, String town2) 
 	{
-		return graph.getEdge(new Town(town1), new Town(town2)).getName();
+		return graph.getEdge(town(town1), town(town2)).getName();
 	}
 
 	/**
@@ -49,7 +61,12 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public boolean addTown(String v) 
 	{
-		return graph.addVertex(new Town(v));
+		if(graph.addVertex(town(v)))
+		{
+			graphChanged();
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -60,7 +77,7 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public Town getTown(String name) 
 	{
-		return graph.vertexSet().stream().filter(town -> town.getName().equals(name)).findAny().orElse(null);
+		return graph.getTown(name);
 	}
 
 	/**
@@ -71,7 +88,7 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public boolean containsTown(String v) 
 	{
-		return graph.containsVertex(new Town(v));
+		return graph.containsVertex(town(v));
 	}
 
 	/**
@@ -83,17 +100,37 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public boolean containsRoadConnection(String town1, String town2) 
 	{
-		return graph.containsEdge(new Town(town1), new Town(town2));
+		return graph.containsEdge(town(town1), town(town2));
 	}
 
 	/**
-	 * this method Creates an arraylist of all road titles in sorted order by road name
+	 * this method Creates an arraylist of all road titles in sorted order by road name.
+	 * The graph keeps the names sorted as roads change, so this only copies them out.
 	 * @return an arraylist of all road titles in sorted order by road name
 	 */
 	@Override
 	public ArrayList<String> allRoads() 
 	{
-		return graph.edgeSet().stream().map(Road :: getName) .sorted().collect(Collectors.toCollection(ArrayList::new));
+		ArrayList<String> roads;
+		roads = new ArrayList<>(graph.edgeSet().size());
+		for(Map.Entry<String, Integer> name : graph.sortedRoadNames().entrySet())
+		{
+			for(int k = 0; k < name.getValue(); k++)
+			{
+				roads.add(name.getKey());
+			}
+		}
+		return roads;
+	}
+
+	/**
+	 * this method Returns the road names in sorted order without copying them, for
+	 * callers that want a range or a page of them
+	 * @return a read-only sorted view from road name to the number of roads with that name
+	 */
+	public NavigableMap<String, Integer> sortedRoads()
+	{
+		return graph.sortedRoadNames();
 	}
 
 	/**
@@ -106,7 +143,12 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public boolean deleteRoadConnection(String town1, String town2, String road) 
 	{
-		return graph.removeEdge(new Town(town1), new Town(town2), 0, road) != null;
+		if(graph.removeEdge(town(town1), town(town2), 0, road) != null)
+		{
+			graphChanged();
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -117,17 +159,61 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public boolean deleteTown(String v) 
 	{
-		return graph.removeVertex(new Town(v));
+		if(graph.removeVertex(town(v)))
+		{
+			graphChanged();
+			return true;
+		}
+		return false;
 	}
 
 	/**
 	 * this method Creates an arraylist of all towns in alphabetical order (last name, first name)
+	 * The graph keeps the names sorted as towns change, so this only copies them out.
 	 * @return an arraylist of all towns in alphabetical order (last name, first name)
 	 */
 	@Override
 	public ArrayList<String> allTowns() 
 	{
-		return graph.vertexSet().stream().map(Town::getName).sorted().collect(Collectors.toCollection(ArrayList::new));
+		return new ArrayList<>(graph.sortedTownNames());
+	}
+
+	/**
+	 * this method Returns the first towns, in alphabetical order, whose names start with
+	 * a prefix, for type-ahead lookup. It seeks to the prefix in the sorted town names
+	 * and reads forward, so it costs one O(log n) seek plus the matches returned.
+	 * @param prefix the start of the name, matched case-sensitively; "" or null matches
+	 * every town
+	 * @param limit the most names to return
+	 * @return the matching names, at most limit of them
+	 */
+	public ArrayList<String> townsStartingWith(String prefix, int limit)
+	{
+		if(prefix == null)
+		{
+			prefix = "";
+		}
+		ArrayList<String> matches;
+		matches = new ArrayList<>();
+		for(String name : graph.sortedTownNames().tailSet(prefix, true))
+		{
+			if(matches.size() >= limit || !name.startsWith(prefix))
+			{
+				break;
+			}
+			matches.add(name);
+		}
+		return matches;
+	}
+
+	/**
+	 * this method Returns the town names in alphabetical order without copying them,
+	 * for callers that want a range or a page of them
+	 * @return a read-only sorted view of the town names
+	 */
+	public NavigableSet<String> sortedTowns()
+	{
+		return graph.sortedTownNames();
 	}
 
 	/**
@@ -140,30 +226,292 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	@Override
 	public ArrayList<String> getPath(String town1, String town2) 
 	{
-		return graph.shortestPath(new Town(town1), new Town(town2));
+		if(routeCache.getCapacity() == 0)
+		{
+			return Graph.describe(route(town1, town2));
+		}
+		
+		ArrayList<Road> route;
+		route = routeCache.get(town1, town2, graph.version());
+		if(route == null)
+		{
+			route = route(town1, town2);
+			routeCache.put(town1, town2, route);
+		}
+		return Graph.describe(route);
+	}
+	
+	/**
+	 * this method finds the shortest route from town 1 to town 2 with the engine
+	 * selected by the routing mode
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return the roads of the route in travel order, or an empty list if there is no route
+	 */
+	private ArrayList<Road> route(String town1, String town2)
+	{
+		switch(routingMode)
+		{
+			case BIDIRECTIONAL:
+				return graph.bidirectionalRoute(town(town1), town(town2));
+			case CONTRACTION_HIERARCHY:
+				return contractionHierarchy().route(town(town1), town(town2));
+			case LANDMARKS:
+				if(landmarkRouter == null)
+				{
+					landmarkRouter = new LandmarkRouter(graph);
+				}
+				return landmarkRouter.route(town(town1), town(town2));
+			case HUB_LABELS:
+				return hubLabelIndex().route(town(town1), town(town2));
+			case FROZEN:
+				return frozenGraph().route(town(town1), town(town2));
+			default:
+				return graph.shortestRoute(town(town1), town(town2));
+		}
+	}
+	
+	/**
+	 * this method Sets how many routes getPath keeps for popular town pairs. A
+	 * cached route also answers the reverse pair, and all routes are dropped
+	 * whenever the graph changes. The cache is off until a capacity is set.
+	 * @param capacity the most routes to keep; 0 turns the cache off
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public void setRouteCacheCapacity(int capacity)
+	{
+		routeCache.setCapacity(capacity);
+	}
+	
+	/**
+	 * this method Returns the route cache in front of getPath, for its hit, miss and
+	 * eviction counts
+	 * @return the route cache
+	 */
+	public RouteCache getRouteCache()
+	{
+		return routeCache;
+	}
+	
+	/**
+	 * this method Returns the length of the shortest route between two towns without
+	 * building the route itself. The answer comes from a hub-label index, which is
+	 * built on the first call after the graph changes.
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return the distance in miles, or -1 if the towns have no path to connect them
+	 */
+	public int getDistance(String town1, String town2)
+	{
+		return hubLabelIndex().distance(town(town1), town(town2));
+	}
+	
+	/**
+	 * this method Computes the shortest distance between every pair of towns, running
+	 * one search per town in parallel
+	 * @return the distances, with towns in alphabetical order
+	 * @throws IllegalStateException if the matrix is too large to hold in memory,
+	 * in which case writeAllPairsDistances can stream it to a file
+	 */
+	public DistanceMatrix allPairsDistances()
+	{
+		return DistanceMatrix.compute(graph, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * this method Computes the shortest distance between every pair of towns and writes
+	 * them to a file a block of rows at a time, so the matrix never has to fit in memory
+	 * @param file the file to write the distances to
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeAllPairsDistances(File file) throws IOException
+	{
+		DistanceMatrix.write(graph, ForkJoinPool.commonPool(), file);
+	}
+	
+	/**
+	 * this method Returns the Contraction Hierarchy of the current graph, building it if needed
+	 * @return the Contraction Hierarchy
+	 */
+	private ContractionHierarchy contractionHierarchy()
+	{
+		if(hierarchy == null)
+		{
+			hierarchy = new ContractionHierarchy(graph);
+		}
+		return hierarchy;
 	}
 	
 	/**
-	 * This method Reads input from a file to build a graph
+	 * this method Returns the hub-label index of the current graph, building it if needed
+	 * @return the hub-label index
+	 */
+	private HubLabelIndex hubLabelIndex()
+	{
+		if(hubLabels == null)
+		{
+			hubLabels = new HubLabelIndex(graph, contractionHierarchy());
+		}
+		return hubLabels;
+	}
+	
+	/**
+	 * this method Returns a compressed snapshot of the current graph, freezing it if needed
+	 * @return the snapshot
+	 */
+	private CompressedGraph frozenGraph()
+	{
+		if(frozen == null)
+		{
+			frozen = graph.freeze();
+		}
+		return frozen;
+	}
+	
+	/**
+	 * this method Returns the shortest path from every source town to every target town.
+	 * Each source is searched only once, and its search stops as soon as all of the
+	 * targets are settled. A target that cannot be reached from a source makes that
+	 * source's search explore every town it can reach.
+	 * @param sources names of the starting towns
+	 * @param targets names of the ending towns
+	 * @return a map from each source to a map from each target to its path, in the
+	 * same format as getPath. Targets with no path from a source map to an empty list.
+	 */
+	@Override
+	public Map<String, Map<String, ArrayList<String>>> getPaths(Collection<String> sources, Collection<String> targets)
+	{
+		ArrayList<Town> destinations;
+		destinations = targets.stream().map(this::town).collect(Collectors.toCollection(ArrayList::new));
+		
+		Map<String, Map<String, ArrayList<String>>> paths;
+		paths = new LinkedHashMap<>();
+		for(String source : sources)
+		{
+			Map<Town, ArrayList<String>> found;
+			found = graph.shortestPaths(town(source), destinations);
+			
+			Map<String, ArrayList<String>> row;
+			row = new LinkedHashMap<>();
+			for(Town destination : destinations)
+			{
+				row.put(destination.getName(), found.get(destination));
+			}
+			paths.put(source, row);
+		}
+		return paths;
+	}
+	
+	/**
+	 * this method Selects the search engine getPath uses
+	 * @param mode the routing mode to use from now on
+	 * @throws NullPointerException if mode is null
+	 */
+	public void setRoutingMode(RoutingMode mode)
+	{
+		if(mode == null)
+		{
+			throw new NullPointerException();
+		}
+		if(mode != routingMode)
+		{
+			routeCache.clear();
+		}
+		routingMode = mode;
+	}
+	
+	/**
+	 * this method Returns the search engine getPath uses
+	 * @return the current routing mode
+	 */
+	public RoutingMode getRoutingMode()
+	{
+		return routingMode;
+	}
+	
+	/**
+	 * this method looks a town up by name in the graph's symbol table, so calls on a
+	 * known town reuse its stored object instead of allocating a new one
+	 * @param name the town's name
+	 * @return the graph's town, or a new town by that name if the graph has none
+	 */
+	private Town town(String name)
+	{
+		Town known;
+		known = graph.getTown(name);
+		return known != null ? known : new Town(name);
+	}
+	
+	/**
+	 * this method Drops the routing indexes built from the graph so they are rebuilt
+	 * from the current towns and roads the next time they are needed
+	 */
+	private void graphChanged()
+	{
+		hierarchy = null;
+		landmarkRouter = null;
+		hubLabels = null;
+		frozen = null;
+	}
+	
+	/**
+	 * this method Saves the graph to a binary file that loadTownGraph can read back
+	 * much faster than populateTownGraph can parse the road file
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveTownGraph(File file) throws IOException
+	{
+		GraphFile.save(graph, file);
+	}
+
+	/**
+	 * this method Adds the towns and roads of a file written by saveTownGraph to the graph
+	 * @param file the file to read
+	 * @throws FileNotFoundException if the file cannot be opened
+	 * @throws IOException if the file cannot be read or is not a graph file; the
+	 * graph is left unchanged in that case
+	 */
+	public void loadTownGraph(File file) throws FileNotFoundException, IOException
+	{
+		GraphFile.load(file, graph);
+		graphChanged();
+	}
+
+	/**
+	 * This method Reads input from a file to build a graph. Each line names a road,
+	 * its length and the two towns it joins. Large files are mapped and parsed in
+	 * parallel chunks, and the roads are added together once the whole file is read.
 	 * @param file  file that contains the data to build graph
 	 * @throws FileNotFoundException
-	 * @throws IOException
+	 * @throws IOException if the file cannot be read or has a malformed line; the
+	 * graph is left unchanged in that case
 	 */
 	public void populateTownGraph(File file) throws FileNotFoundException, IOException
 	{
-		InputStream is;
-		is = new FileInputStream(file);
-		BufferedReader buf;
-		buf = new BufferedReader(new InputStreamReader(is));
-		
-		buf.lines()
-		.map(s -> s.split(";|\\,"))
-		.forEach(ar ->{
-			addTown(ar[2]);
-			addTown(ar[3]);
-			addRoad(ar[2], ar[3], Integer.parseInt(ar[1]), ar[0]);
-		});
-		buf.close();
+		RoadFileLoader.load(file, graph, ForkJoinPool.commonPool());
+		graphChanged();
+	}
+
+	/**
+	 * This method Reads input from a file to build a graph, like populateTownGraph(File),
+	 * reporting how far it has got. It is meant to run off the UI thread: interrupting
+	 * the thread that calls it stops the load, and nothing else may use this manager
+	 * until it returns. An interrupt that comes once the roads are being added to the
+	 * graph is too late; the whole file is then added and the method returns normally.
+	 * @param file  file that contains the data to build graph
+	 * @param progress given the fraction of the file read so far, from 0 to 1; it may
+	 * be called from other threads
+	 * @throws FileNotFoundException
+	 * @throws InterruptedIOException if the calling thread was interrupted; the graph
+	 * is left unchanged in that case
+	 * @throws IOException if the file cannot be read or has a malformed line; the
+	 * graph is left unchanged in that case
+	 */
+	public void populateTownGraph(File file, DoubleConsumer progress) throws FileNotFoundException, IOException
+	{
+		RoadFileLoader.load(file, graph, ForkJoinPool.commonPool(), progress);
+		graphChanged();
 	}
 
 }
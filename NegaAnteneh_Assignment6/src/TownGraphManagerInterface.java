@@ -86,4 +86,14 @@ public interface TownGraphManagerInterface {
 	 */
 	public ArrayList<String> getPath(String town1, String town2);
 	
+	/**
+	 * Returns the shortest path from every source town to every target town, searching
+	 * from each source only once
+	 * @param sources names of the starting towns
+	 * @param targets names of the ending towns
+	 * @return a map from each source to a map from each target to its path, in the
+	 * same format as getPath. Targets with no path from a source map to an empty list.
+	 */
+	public Map<String, Map<String, ArrayList<String>>> getPaths(Collection<String> sources, Collection<String> targets);
+	
 }
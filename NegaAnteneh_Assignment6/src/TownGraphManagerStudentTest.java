@@ -3,7 +3,14 @@
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -161,4 +168,273 @@ public class TownGraphManagerStudentTest {
 
 	}
 
+	@Test
+	public void testGetPathBidirectional() {
+		((TownGraphManager) graph).setRoutingMode(RoutingMode.BIDIRECTIONAL);
+		ArrayList<String> path = graph.getPath(town[1],town[6]);
+		  assertNotNull(path);
+		  assertEquals(5, path.size());
+		  assertEquals("Town_1 via Road_2 to Town_3 4 mi",path.get(0).trim());
+		  assertEquals("Town_3 via Road_5 to Town_8 2 mi",path.get(1).trim());
+		  assertEquals("Town_8 via Road_9 to Town_10 2 mi",path.get(2).trim());
+		  assertEquals("Town_10 via Road_8 to Town_9 4 mi",path.get(3).trim());
+		  assertEquals("Town_9 via Road_7 to Town_6 3 mi",path.get(4).trim());
+		graph.addTown("Town_12");
+		assertTrue(graph.getPath(town[1],"Town_12").isEmpty());
+	}
+
+	@Test
+	public void testGetPathContractionHierarchy() {
+		((TownGraphManager) graph).setRoutingMode(RoutingMode.CONTRACTION_HIERARCHY);
+		ArrayList<String> path = graph.getPath(town[1],town[11]);
+		  assertEquals(2, path.size());
+		  assertEquals("Town_1 via Road_1 to Town_2 2 mi",path.get(0).trim());
+		  assertEquals("Town_2 via Road_12 to Town_11 6 mi",path.get(1).trim());
+		graph.deleteRoadConnection(town[2], town[11], "Road_12");
+		path = graph.getPath(town[1],town[11]);
+		  assertEquals(4, path.size());
+		  assertEquals("Town_1 via Road_2 to Town_3 4 mi",path.get(0).trim());
+		  assertEquals("Town_3 via Road_5 to Town_8 2 mi",path.get(1).trim());
+		  assertEquals("Town_8 via Road_9 to Town_10 2 mi",path.get(2).trim());
+		  assertEquals("Town_10 via Road_11 to Town_11 3 mi",path.get(3).trim());
+		graph.deleteTown(town[9]);
+		assertEquals(path, graph.getPath(town[1],town[11]));
+		assertTrue(graph.getPath(town[1],town[9]).isEmpty());
+	}
+
+	@Test
+	public void testGetPathLandmarks() {
+		((TownGraphManager) graph).setRoutingMode(RoutingMode.LANDMARKS);
+		ArrayList<String> path = graph.getPath(town[4],town[11]);
+		  assertEquals(3, path.size());
+		  assertEquals("Town_4 via Road_6 to Town_8 3 mi",path.get(0).trim());
+		  assertEquals("Town_8 via Road_9 to Town_10 2 mi",path.get(1).trim());
+		  assertEquals("Town_10 via Road_11 to Town_11 3 mi",path.get(2).trim());
+		graph.addRoad(town[4], town[11], 1, "Road_13");
+		path = graph.getPath(town[4],town[11]);
+		  assertEquals(1, path.size());
+		  assertEquals("Town_4 via Road_13 to Town_11 1 mi",path.get(0).trim());
+	}
+
+	@Test
+	public void testGetPathFrozen() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.setRoutingMode(RoutingMode.FROZEN);
+		ArrayList<String> path = graph.getPath(town[1],town[11]);
+		  assertEquals(2, path.size());
+		  assertEquals("Town_1 via Road_1 to Town_2 2 mi",path.get(0).trim());
+		  assertEquals("Town_2 via Road_12 to Town_11 6 mi",path.get(1).trim());
+		graph.deleteRoadConnection(town[2], town[11], "Road_12");
+		path = graph.getPath(town[1],town[11]);
+		  assertEquals(4, path.size());
+		  assertEquals("Town_10 via Road_11 to Town_11 3 mi",path.get(3).trim());
+		manager.setRoutingMode(RoutingMode.DIJKSTRA);
+		assertEquals(path, graph.getPath(town[1],town[11]));
+	}
+
+	@Test
+	public void testGetDistance() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		assertEquals(8, manager.getDistance(town[1], town[11]));
+		assertEquals(15, manager.getDistance(town[1], town[6]));
+		assertEquals(0, manager.getDistance(town[4], town[4]));
+		graph.addTown("Town_12");
+		assertEquals(-1, manager.getDistance(town[1], "Town_12"));
+		graph.deleteRoadConnection(town[2], town[11], "Road_12");
+		assertEquals(11, manager.getDistance(town[1], town[11]));
+		manager.setRoutingMode(RoutingMode.HUB_LABELS);
+		assertEquals(4, graph.getPath(town[1], town[11]).size());
+		graph.deleteTown(town[9]);
+		assertEquals("Town_8 via Road_9 to Town_10 2 mi", graph.getPath(town[1], town[11]).get(2).trim());
+		assertEquals(-1, manager.getDistance(town[1], town[9]));
+	}
+
+	@Test
+	public void testAllPairsDistances() {
+		DistanceMatrix matrix = ((TownGraphManager) graph).allPairsDistances();
+		assertEquals("Town_1", matrix.getTowns()[0]);
+		assertEquals(11, matrix.getTowns().length);
+		assertEquals(8, matrix.getDistance(town[1], town[11]));
+		assertEquals(8, matrix.getDistance(town[11], town[1]));
+		assertEquals(15, matrix.getDistance(town[1], town[6]));
+		assertEquals(0, matrix.getDistance(town[5], town[5]));
+		assertEquals(-1, matrix.getDistance(town[1], "Town_12"));
+	}
+
+	@Test
+	public void testGetPaths() {
+		graph.addTown("Town_12");
+		Map<String, Map<String, ArrayList<String>>> paths = graph.getPaths(Arrays.asList(town[1], town[4]), Arrays.asList(town[11], town[6], "Town_12"));
+		assertEquals(2, paths.size());
+		assertEquals(graph.getPath(town[1], town[11]), paths.get(town[1]).get(town[11]));
+		assertEquals(graph.getPath(town[1], town[6]), paths.get(town[1]).get(town[6]));
+		assertEquals(graph.getPath(town[4], town[11]), paths.get(town[4]).get(town[11]));
+		assertEquals(graph.getPath(town[4], town[6]), paths.get(town[4]).get(town[6]));
+		assertTrue(paths.get(town[1]).get("Town_12").isEmpty());
+	}
+
+	@Test
+	public void testRouteCache() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.setRouteCacheCapacity(1);
+		ArrayList<String> path = graph.getPath(town[1],town[11]);
+		  assertEquals(2, path.size());
+		path = graph.getPath(town[11],town[1]);
+		  assertEquals("Town_11 via Road_12 to Town_2 6 mi",path.get(0).trim());
+		  assertEquals("Town_2 via Road_1 to Town_1 2 mi",path.get(1).trim());
+		assertEquals(1, manager.getRouteCache().getHits());
+		assertEquals(1, manager.getRouteCache().getMisses());
+		graph.getPath(town[4],town[11]);
+		assertEquals(1, manager.getRouteCache().getEvictions());
+		graph.deleteRoadConnection(town[2], town[11], "Road_12");
+		assertEquals(4, graph.getPath(town[1],town[11]).size());
+		assertEquals(3, manager.getRouteCache().getMisses());
+	}
+
+	@Test
+	public void testPopulateTownGraph() throws Exception {
+		File file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "Road_20,3;Town_11;Town_20\r\nRoad_21,4;Town_20;Town_21\n\nRoad_22,1;Town_21;Town_1".getBytes("UTF-8"));
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.populateTownGraph(file);
+		assertEquals(13, graph.allTowns().size());
+		assertEquals(15, graph.allRoads().size());
+		assertEquals("Road_22", graph.getRoad("Town_1", "Town_21"));
+		ArrayList<String> path = graph.getPath(town[1], "Town_20");
+		  assertEquals("Town_1 via Road_22 to Town_21 1 mi",path.get(0).trim());
+		  assertEquals("Town_21 via Road_21 to Town_20 4 mi",path.get(1).trim());
+
+		Files.write(file.toPath(), "Road_30,5;Town_30;Town_31\nRoad_31,five;Town_31;Town_32\n".getBytes("UTF-8"));
+		try {
+			manager.populateTownGraph(file);
+			fail("a malformed length should be rejected");
+		} catch (IOException e) {
+			assertFalse(graph.containsTown("Town_30"));
+		}
+	}
+
+	@Test
+	public void testSaveAndLoadTownGraph() throws Exception {
+		File file = File.createTempFile("graph", ".bin");
+		file.deleteOnExit();
+		graph.addTown("Town_12");
+		graph.addRoad(town[5], town[5], 1, "Loop");
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.saveTownGraph(file);
+
+		TownGraphManager loaded = new TownGraphManager();
+		loaded.loadTownGraph(file);
+		assertEquals(graph.allTowns(), loaded.allTowns());
+		assertEquals(graph.allRoads(), loaded.allRoads());
+		assertEquals(graph.getPath(town[1], town[6]), loaded.getPath(town[1], town[6]));
+		assertEquals(graph.getPath(town[11], town[4]), loaded.getPath(town[11], town[4]));
+
+		Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		try {
+			loaded.loadTownGraph(file);
+			fail("a file that is not a graph file should be rejected");
+		} catch (IOException e) {
+			assertEquals(graph.allRoads(), loaded.allRoads());
+		}
+	}
+
+	@Test
+	public void testSaveUnnamedRoad() throws Exception {
+		File dir = Files.createTempDirectory("graphs").toFile();
+		dir.deleteOnExit();
+		File file = new File(dir, "graph.bin");
+		file.deleteOnExit();
+		Files.write(file.toPath(), new byte[] {1, 2, 3, 4});
+		graph.addTown("Town_12");
+		graph.addRoad("Town_12", town[1], 7, null);
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.saveTownGraph(file);
+		assertEquals(Collections.singletonList(file), Arrays.asList(dir.listFiles()));
+
+		TownGraphManager loaded = new TownGraphManager();
+		loaded.loadTownGraph(file);
+		assertTrue(loaded.containsRoadConnection(town[1], "Town_12"));
+		assertNull(loaded.getRoad(town[1], "Town_12"));
+		assertEquals(graph.allRoads(), loaded.allRoads());
+		assertEquals(graph.getPath("Town_12", town[2]), loaded.getPath("Town_12", town[2]));
+	}
+
+	@Test
+	public void testSaveShortNameAndLoadBadCounts() throws Exception {
+		File dir = Files.createTempDirectory("graphs").toFile();
+		dir.deleteOnExit();
+		File file = new File(dir, "g");
+		file.deleteOnExit();
+		TownGraphManager manager = (TownGraphManager) graph;
+		manager.saveTownGraph(file);
+		assertEquals(Collections.singletonList(file), Arrays.asList(dir.listFiles()));
+
+		for (int[] header : new int[][] {{Integer.MAX_VALUE, 0, 0}, {0, 0, Integer.MAX_VALUE}}) {
+			java.nio.ByteBuffer bytes = java.nio.ByteBuffer.allocate(64);
+			bytes.putInt(GraphFile.MAGIC).putInt(GraphFile.FORMAT_VERSION).putInt(header[0]).putInt(header[1]).putInt(header[2]);
+			Files.write(file.toPath(), bytes.array());
+			try {
+				new TownGraphManager().loadTownGraph(file);
+				fail("a count that overflows should be rejected");
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testSortedIndexes() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		graph.addTown("Town_0");
+		graph.addRoad("Town_0", town[1], 1, "Road_1");
+		assertEquals("Town_0", manager.sortedTowns().first());
+		assertEquals(Integer.valueOf(2), manager.sortedRoads().get("Road_1"));
+		assertEquals(Arrays.asList("Town_10", "Town_11"), new ArrayList<>(manager.sortedTowns().subSet("Town_10", true, "Town_2", false)));
+		graph.deleteTown("Town_0");
+		assertEquals(Integer.valueOf(1), manager.sortedRoads().get("Road_1"));
+		graph.deleteRoadConnection(town[2], town[11], "Road_12");
+		assertFalse(manager.sortedRoads().containsKey("Road_12"));
+		ArrayList<String> towns = graph.allTowns();
+		ArrayList<String> sorted = new ArrayList<>(towns);
+		Collections.sort(sorted);
+		assertEquals(sorted, towns);
+		assertEquals(11, towns.size());
+		assertEquals(11, graph.allRoads().size());
+	}
+
+	@Test
+	public void testTownsStartingWith() {
+		TownGraphManager manager = (TownGraphManager) graph;
+		graph.addTown("Towson");
+		assertEquals(Arrays.asList("Town_1", "Town_10", "Town_11"), manager.townsStartingWith("Town_1", 5));
+		assertEquals(Arrays.asList("Town_1", "Town_10"), manager.townsStartingWith("Town_1", 2));
+		assertEquals(Arrays.asList("Towson"), manager.townsStartingWith("Tows", 5));
+		assertEquals(3, manager.townsStartingWith("", 3).size());
+		assertEquals(manager.townsStartingWith("", 4), manager.townsStartingWith(null, 4));
+		assertTrue(manager.townsStartingWith("Z", 5).isEmpty());
+	}
+
+	@Test
+	public void testPopulateTownGraphProgress() throws Exception {
+		File file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "Road_20,3;Town_11;Town_20\nRoad_21,4;Town_20;Town_21\n".getBytes("UTF-8"));
+		TownGraphManager manager = (TownGraphManager) graph;
+		double[] last = new double[1];
+		manager.populateTownGraph(file, fraction -> last[0] = fraction);
+		assertEquals(1.0, last[0], 0.0);
+		assertTrue(graph.containsTown("Town_21"));
+
+		Files.write(file.toPath(), "Road_30,5;Town_30;Town_31\n".getBytes("UTF-8"));
+		Thread.currentThread().interrupt();
+		try {
+			manager.populateTownGraph(file, fraction -> { });
+			fail("an interrupted load should stop");
+		} catch (InterruptedIOException e) {
+			assertFalse(graph.containsTown("Town_30"));
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
 }
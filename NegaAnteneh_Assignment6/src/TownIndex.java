@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A symbol table giving every town name a small int ID, so that graph internals
+ * can index plain arrays and compare towns with a single int compare. IDs are
+ * handed out in order starting at 0 and are not reused after a town is removed.
+ */
+public class TownIndex {
+
+	/**
+	 * The ID reported for a name that is not in the table
+	 */
+	public static final int MISSING = -1;
+
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final ArrayList<Town> towns = new ArrayList<>();
+	private int size;
+
+	/**
+	 * this method returns the ID of a town name
+	 * @param name the town's name
+	 * @return the ID, or MISSING if the name is not in the table
+	 */
+	public int getId(String name)
+	{
+		Integer id = ids.get(name);
+		return id == null ? MISSING : id;
+	}
+
+	/**
+	 * this method returns the ID of a town
+	 * @param town the town, matched by name
+	 * @return the ID, or MISSING if the town is null or not in the table
+	 */
+	public int getId(Town town)
+	{
+		return town == null ? MISSING : getId(town.getName());
+	}
+
+	/**
+	 * this method returns the town with a given ID
+	 * @param id the ID
+	 * @return the town, or null if the ID is out of range or its town was removed
+	 */
+	public Town getTown(int id)
+	{
+		return id < 0 || id >= towns.size() ? null : towns.get(id);
+	}
+
+	/**
+	 * this method returns the town stored under a name
+	 * @param name the town's name
+	 * @return the town, or null if the name is not in the table
+	 */
+	public Town getTown(String name)
+	{
+		return getTown(getId(name));
+	}
+
+	/**
+	 * this method gives a town the next free ID, or returns the ID it already has
+	 * @param town the town to add
+	 * @return the town's ID
+	 */
+	public int add(Town town)
+	{
+		int id = getId(town.getName());
+		if(id != MISSING)
+		{
+			return id;
+		}
+		id = towns.size();
+		ids.put(town.getName(), id);
+		towns.add(town);
+		size++;
+		return id;
+	}
+
+	/**
+	 * this method removes a town from the table. Its ID is not handed out again.
+	 * @param id the ID of the town to remove
+	 * @return true if a town was removed
+	 */
+	public boolean remove(int id)
+	{
+		Town town = getTown(id);
+		if(town == null)
+		{
+			return false;
+		}
+		ids.remove(town.getName());
+		towns.set(id, null);
+		size--;
+		return true;
+	}
+
+	/**
+	 * this method returns one more than the largest ID handed out, which is the
+	 * length an array needs to be indexed by ID
+	 * @return the ID bound
+	 */
+	public int bound()
+	{
+		return towns.size();
+	}
+
+	/**
+	 * this method returns the number of towns in the table
+	 * @return the number of towns
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
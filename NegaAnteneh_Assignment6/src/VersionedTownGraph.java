@@ -0,0 +1,269 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * A TownGraphManager whose every change publishes a new immutable GraphSnapshot,
+ * so routing can go on while roads are edited.
+ *
+ * Queries read whichever snapshot is current when they start and never lock, so a
+ * getPath that is running when an edit lands finishes on the version it began
+ * with. Changes are made one at a time; apply runs several of them as one batch
+ * that readers see all at once or not at all. snapshot() pins the current version
+ * for repeatable runs, and snapshot(version) finds one of the last few versions
+ * published.
+ */
+public class VersionedTownGraph implements TownGraphManagerInterface {
+
+	/**
+	 * The number of past versions kept for snapshot(version) unless set otherwise
+	 */
+	public static final int DEFAULT_HISTORY = 16;
+
+	private volatile GraphSnapshot current = GraphSnapshot.empty();
+	private final ConcurrentSkipListMap<Long, GraphSnapshot> history = new ConcurrentSkipListMap<>();
+	private int historySize = DEFAULT_HISTORY;
+
+	/**
+	 * Constructor
+	 */
+	public VersionedTownGraph()
+	{
+		history.put(current.getVersion(), current);
+	}
+
+	/**
+	 * this method returns the current version, which stays the same however the
+	 * graph changes afterwards
+	 * @return the current snapshot
+	 */
+	public GraphSnapshot snapshot()
+	{
+		return current;
+	}
+
+	/**
+	 * this method returns a version still kept in the history
+	 * @param version the version number
+	 * @return the snapshot, or null if that version was never published or has
+	 * been dropped from the history
+	 */
+	public GraphSnapshot snapshot(long version)
+	{
+		return history.get(version);
+	}
+
+	/**
+	 * this method sets how many past versions snapshot(version) can find. Snapshots
+	 * already handed out stay usable whatever the history keeps.
+	 * @param versions the number of versions to keep, at least 1
+	 * @throws IllegalArgumentException if versions is less than 1
+	 */
+	public synchronized void setHistorySize(int versions)
+	{
+		if(versions < 1)
+		{
+			throw new IllegalArgumentException();
+		}
+		historySize = versions;
+		trimHistory();
+	}
+
+	/**
+	 * this method makes several changes and publishes them as one new version.
+	 * Readers see either none of the changes or all of them. The batch refuses
+	 * edits once apply returns, since the new version owns its arrays.
+	 * @param changes the changes to make, given the batch to make them on
+	 * @return the new version
+	 */
+	public synchronized GraphSnapshot apply(Consumer<GraphSnapshot.Batch> changes)
+	{
+		GraphSnapshot.Batch batch;
+		batch = current.edit();
+		changes.accept(batch);
+		publish(batch.commit());
+		return current;
+	}
+
+	/**
+	 * this method Adds a road with 2 towns and a road name
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param roadName name of road
+	 * @return true if the road was added successfully, false if either town is missing
+	 */
+	@Override
+	public synchronized boolean addRoad(String town1, String town2, int weight, String roadName)
+	{
+		GraphSnapshot.Batch batch;
+		batch = current.edit();
+		return batch.addRoad(town1, town2, weight, roadName) && publish(batch.commit());
+	}
+
+	/**
+	 * this method Returns the name of the road that both towns are connected through
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return name of road if town 1 and town2 are in the same road, returns null if not
+	 */
+	@Override
+	public String getRoad(String town1, String town2)
+	{
+		return current.getRoad(town1, town2);
+	}
+
+	/**
+	 * this method Adds a town to the graph
+	 * @param v the town's name  (lastname, firstname)
+	 * @return true if the town was successfully added, false if not
+	 */
+	@Override
+	public synchronized boolean addTown(String v)
+	{
+		GraphSnapshot.Batch batch;
+		batch = current.edit();
+		return batch.addTown(v) && publish(batch.commit());
+	}
+
+	/**
+	 * this method Gets a town with a given name
+	 * @param name the town's name
+	 * @return the Town specified by the name, or null if town does not exist
+	 */
+	@Override
+	public Town getTown(String name)
+	{
+		return current.getTown(name);
+	}
+
+	/**
+	 * this method Determines if a town is already in the graph
+	 * @param v the town's name
+	 * @return true if the town is in the graph, false if not
+	 */
+	@Override
+	public boolean containsTown(String v)
+	{
+		return current.containsTown(v);
+	}
+
+	/**
+	 * this method Determines if a road is in the graph
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return true if the road is in the graph, false if not
+	 */
+	@Override
+	public boolean containsRoadConnection(String town1, String town2)
+	{
+		return current.containsRoadConnection(town1, town2);
+	}
+
+	/**
+	 * this method Creates an arraylist of all road titles in sorted order by road name
+	 * @return an arraylist of all road titles in sorted order by road name
+	 */
+	@Override
+	public ArrayList<String> allRoads()
+	{
+		return current.allRoads();
+	}
+
+	/**
+	 * this method Deletes a road from the graph
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @param roadName the road name
+	 * @return true if the road was successfully deleted, false if not
+	 */
+	@Override
+	public synchronized boolean deleteRoadConnection(String town1, String town2, String road)
+	{
+		GraphSnapshot.Batch batch;
+		batch = current.edit();
+		return batch.deleteRoadConnection(town1, town2, road) && publish(batch.commit());
+	}
+
+	/**
+	 * this method Deletes a town from the graph
+	 * @param v name of town (lastname, firstname)
+	 * @return true if the town was successfully deleted, false if not
+	 */
+	@Override
+	public synchronized boolean deleteTown(String v)
+	{
+		GraphSnapshot.Batch batch;
+		batch = current.edit();
+		return batch.deleteTown(v) && publish(batch.commit());
+	}
+
+	/**
+	 * this method Creates an arraylist of all towns in alphabetical order (last name, first name)
+	 * @return an arraylist of all towns in alphabetical order (last name, first name)
+	 */
+	@Override
+	public ArrayList<String> allTowns()
+	{
+		return current.allTowns();
+	}
+
+	/**
+	 * this method Returns the shortest path from town 1 to town 2
+	 * @param town1 name of town 1 (lastname, firstname)
+	 * @param town2 name of town 2 (lastname, firstname)
+	 * @return an Arraylist of roads connecting the two towns together, empty if the
+	 * towns have no path to connect them.
+	 */
+	@Override
+	public ArrayList<String> getPath(String town1, String town2)
+	{
+		return current.getPath(town1, town2);
+	}
+
+	/**
+	 * this method Returns the shortest path from every source town to every target town.
+	 * Each source is searched only once, and every path comes from the same version.
+	 * @param sources names of the starting towns
+	 * @param targets names of the ending towns
+	 * @return a map from each source to a map from each target to its path, in the
+	 * same format as getPath. Targets with no path from a source map to an empty list.
+	 */
+	@Override
+	public Map<String, Map<String, ArrayList<String>>> getPaths(Collection<String> sources, Collection<String> targets)
+	{
+		GraphSnapshot snapshot;
+		snapshot = current;
+
+		Map<String, Map<String, ArrayList<String>>> paths;
+		paths = new LinkedHashMap<>();
+		for(String source : sources)
+		{
+			paths.put(source, snapshot.shortestPaths(source, targets));
+		}
+		return paths;
+	}
+
+	/**
+	 * this method makes a snapshot current and records it in the history
+	 * @param next the new version
+	 * @return true
+	 */
+	private boolean publish(GraphSnapshot next)
+	{
+		history.put(next.getVersion(), next);
+		current = next;
+		trimHistory();
+		return true;
+	}
+
+	private void trimHistory()
+	{
+		while(history.size() > historySize)
+		{
+			history.pollFirstEntry();
+		}
+	}
+}
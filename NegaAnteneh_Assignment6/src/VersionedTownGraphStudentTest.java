@@ -0,0 +1,159 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class VersionedTownGraphStudentTest {
+	private VersionedTownGraph graph;
+	private String[] town;
+
+	@Before
+	public void setUp() throws Exception {
+		  graph = new VersionedTownGraph();
+		  town = new String[12];
+		  
+		  for (int i = 1; i < 12; i++) {
+			  town[i] = "Town_" + i;
+			  graph.addTown(town[i]);
+		  }
+		  
+		  graph.addRoad(town[1], town[2], 2, "Road_1");
+		  graph.addRoad(town[1], town[3], 4, "Road_2");
+		  graph.addRoad(town[1], town[5], 6, "Road_3");
+		  graph.addRoad(town[3], town[7], 1, "Road_4");
+		  graph.addRoad(town[3], town[8], 2, "Road_5");
+		  graph.addRoad(town[4], town[8], 3, "Road_6");
+		  graph.addRoad(town[6], town[9], 3, "Road_7");
+		  graph.addRoad(town[9], town[10], 4, "Road_8");
+		  graph.addRoad(town[8], town[10], 2, "Road_9");
+		  graph.addRoad(town[5], town[10], 5, "Road_10");
+		  graph.addRoad(town[10], town[11], 3, "Road_11");
+		  graph.addRoad(town[2], town[11], 6, "Road_12");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testAddAndDelete() {
+		assertEquals(12, graph.allRoads().size());
+		assertEquals("Road_12", graph.getRoad(town[11], town[2]));
+		assertEquals(false, graph.addTown("Town_1"));
+		assertEquals(true, graph.deleteRoadConnection(town[2], town[11], "Road_12"));
+		assertEquals(false, graph.containsRoadConnection(town[11], town[2]));
+		assertEquals(true, graph.deleteTown(town[10]));
+		assertEquals(false, graph.containsTown(town[10]));
+		assertEquals(7, graph.allRoads().size());
+		assertEquals(10, graph.allTowns().size());
+		assertTrue(graph.getPath(town[1], town[11]).isEmpty());
+	}
+
+	@Test
+	public void testDeleteMatchesTownGraphManager() {
+		TownGraphManager manager = new TownGraphManager();
+		for (TownGraphManagerInterface g : Arrays.asList(graph, manager)) {
+			g.addTown(town[1]);
+			g.addTown("Town_12");
+			g.addTown("Town_13");
+			g.addRoad("Town_12", town[1], 1, null);
+			g.addRoad("Town_13", town[1], 1, "Road_13");
+			assertEquals(false, g.deleteRoadConnection("Town_12", town[1], null));
+			assertEquals(true, g.deleteRoadConnection("Town_12", town[1], "Road_12"));
+			assertEquals(true, g.deleteRoadConnection(town[1], "Town_13", "Other"));
+			assertEquals(false, g.containsRoadConnection("Town_13", town[1]));
+		}
+	}
+
+	@Test
+	public void testPinnedVersion() {
+		GraphSnapshot pinned = graph.snapshot();
+		ArrayList<String> path = pinned.getPath(town[1], town[11]);
+		assertEquals("Town_1 via Road_1 to Town_2 2 mi", path.get(0).trim());
+		assertEquals("Town_2 via Road_12 to Town_11 6 mi", path.get(1).trim());
+
+		graph.apply(batch -> {
+			batch.deleteRoadConnection(town[2], town[11], "Road_12");
+			batch.addTown("Town_12");
+		});
+		assertEquals(pinned.getVersion() + 1, graph.snapshot().getVersion());
+		assertEquals(4, graph.getPath(town[1], town[11]).size());
+		assertEquals(path, pinned.getPath(town[1], town[11]));
+		assertEquals(12, pinned.allRoads().size());
+		assertFalse(pinned.containsTown("Town_12"));
+		assertSame(pinned, graph.snapshot(pinned.getVersion()));
+
+		graph.setHistorySize(1);
+		assertNull(graph.snapshot(pinned.getVersion()));
+		assertEquals(path, pinned.getPath(town[1], town[11]));
+	}
+
+	@Test
+	public void testBatchClosedAfterCommit() {
+		List<GraphSnapshot.Batch> kept = new ArrayList<>();
+		GraphSnapshot published = graph.apply(batch -> {
+			batch.addTown("Town_12");
+			kept.add(batch);
+		});
+		GraphSnapshot.Batch batch = kept.get(0);
+		try {
+			batch.addRoad(town[1], "Town_12", 1, "Road_13");
+			fail("edited a committed batch");
+		} catch (IllegalStateException e) {
+		}
+		try {
+			batch.deleteTown(town[1]);
+			fail("edited a committed batch");
+		} catch (IllegalStateException e) {
+		}
+		assertTrue(published.containsTown(town[1]));
+		assertNull(published.getRoad(town[1], "Town_12"));
+		assertEquals(12, published.roadCount());
+	}
+
+	@Test
+	public void testReadersDuringEdits() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<?>> work = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int id = t;
+			work.add(pool.submit(() -> {
+				for (int n = 0; n < 200; n++) {
+					String extra = "Extra_" + id + "_" + n;
+					String spur = "Spur_" + id + "_" + n;
+					String to = town[1 + n % 11];
+					graph.apply(batch -> {
+						batch.addTown(extra);
+						batch.addRoad(extra, to, 1, spur);
+					});
+					graph.deleteTown(extra);
+				}
+			}));
+			work.add(pool.submit(() -> {
+				for (int n = 0; n < 200; n++) {
+					GraphSnapshot snapshot = graph.snapshot();
+					assertEquals(2, snapshot.getPath(town[1], town[11]).size());
+					assertEquals(snapshot.roadCount(), snapshot.allRoads().size());
+				}
+			}));
+		}
+		for (Future<?> f : work) {
+			f.get();
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(11, graph.allTowns().size());
+		assertEquals(12, graph.allRoads().size());
+	}
+}